@@ -2,6 +2,9 @@ package com.dzieger.SecurityConfig;
 
 import com.dzieger.models.enums.Role;
 import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
 
 public class CustomAuthenticationToken extends AbstractAuthenticationToken {
 
@@ -9,7 +12,8 @@ public class CustomAuthenticationToken extends AbstractAuthenticationToken {
     private final String role;
 
     public CustomAuthenticationToken(String userId, Role role) {
-        super(null);
+        // the role is the only authority, so @Secured("ROLE_ADMIN") guards the internal endpoints
+        super(List.of(new SimpleGrantedAuthority("ROLE_" + role)));
         this.userId = userId;
         this.role = role.toString();
         setAuthenticated(true);
@@ -29,7 +29,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        log.info("Processing authentication for '{}'", request.getRequestURI());
+        log.debug("Processing authentication for '{}'", request.getRequestURI());
 
         final String authorizationHeader = request.getHeader("Authorization");
 
@@ -42,19 +42,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             Claims claims = jwtUtil.extractAllClaims(token);
-
-            log.info("Claims extracted: {}", claims);
             String userId = claims.getSubject();
             List<String> roles = claims.get("authorities", List.class);
 
             Role role = Role.valueOf(roles.get(0));
 
-            log.info("User ID: {}", userId);
             CustomAuthenticationToken authentication = new CustomAuthenticationToken(userId, role);
             authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
             SecurityContextHolder.getContext().setAuthentication(authentication);
-            log.info("User authenticated: {}", authentication.getName());
+            log.debug("User authenticated: {}", authentication.getName());
         } catch (Exception e) {
             log.error("Error while processing authentication", e);
             SecurityContextHolder.clearContext();
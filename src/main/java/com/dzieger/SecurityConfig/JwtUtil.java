@@ -2,10 +2,15 @@ package com.dzieger.SecurityConfig;
 
 import com.dzieger.config.Parameters;
 import com.dzieger.models.enums.Role;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.annotation.Timed;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,19 +18,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
 
     private static final Logger log = LoggerFactory.getLogger(JwtUtil.class);
 
+    // Upper bound on verified tokens kept in memory, and how long a token without an exp claim may stay cached
+    private static final long CLAIMS_CACHE_MAX_SIZE = 10_000;
+    private static final long CLAIMS_CACHE_DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long ALLOWED_CLOCK_SKEW_SECONDS = 1;
+
     private long jwtExpiration;
     private String jwtSecret;
     private String jwtIssuer;
     private Key KEY;
+    private JwtParser jwtParser;
+    private Cache<String, Claims> claimsCache;
 
     @Autowired
     private Parameters params;
@@ -61,16 +78,50 @@ public class JwtUtil {
         }
 
         this.KEY = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+
+        // JwtParser is immutable and thread-safe, so one instance covers signature, issuer and expiry checks
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(KEY)
+                .requireIssuer(jwtIssuer)
+                .setAllowedClockSkewSeconds(ALLOWED_CLOCK_SKEW_SECONDS)
+                .build();
+
+        // Verified claims are cached by token digest until the token's own exp claim, so a request
+        // that touches the token several times only pays for the signature check once
+        this.claimsCache = Caffeine.newBuilder()
+                .maximumSize(CLAIMS_CACHE_MAX_SIZE)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        return timeUntilExpiration(claims);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return timeUntilExpiration(claims);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
+    // Timed when called through the bean, i.e. by JwtAuthenticationFilter once per request
+    @Timed(value = "player.jwt.claims", histogram = true, percentiles = {0.5, 0.95, 0.99})
     public Claims extractAllClaims(String token) {
-        log.info("Extracting all claims from token");
+        log.debug("Extracting all claims from token");
+        String cacheKey = digest(token);
+        Claims cached = claimsCache.getIfPresent(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
         try{
-            return Jwts.parserBuilder()
-                    .setSigningKey(KEY)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            claimsCache.put(cacheKey, claims);
+            return claims;
         } catch (JwtException e) {
             log.error("Error while extracting claims from token", e);
             throw new JwtException("Error while extracting claims from token");
@@ -78,39 +129,52 @@ public class JwtUtil {
     }
 
     public String extractUserId(String token) {
-        log.info("Extracting user ID from token");
+        log.debug("Extracting user ID from token");
         return extractAllClaims(token).getSubject();
     }
 
     public String extractUsername(String token) {
-        log.info("Extracting username from token");
+        log.debug("Extracting username from token");
         return extractAllClaims(token).get("username", String.class);
     }
 
     public List<Role> extractRole(String token) {
-        log.info("Extracting role from token");
+        log.debug("Extracting role from token");
         List<String> roles = extractAllClaims(token).get("authorities", List.class);
         return roles.stream().map(Role::valueOf).toList(); // Convert strings to Role enums
     }
 
     public boolean validate(String token) {
-        log.info("Validating token");
+        log.debug("Validating token");
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(KEY)
-                    .setAllowedClockSkewSeconds(1) // Add 1 second of clock skew
-                    .build()
-                    .parseClaimsJws(token);
-            if (!jwtIssuer.equals(extractAllClaims(token).getIssuer())) {
-                throw new JwtException("Invalid JWT issuer");
-            }
-            return jwtIssuer.equals(extractAllClaims(token).getIssuer());
+            // Issuer and expiry are enforced by the parser, so a single parse is enough
+            extractAllClaims(token);
+            return true;
         } catch (JwtException e) {
             log.error("Token not validated");
         }
         return false;
     }
 
+    // Helper methods
+
+    private static long timeUntilExpiration(Claims claims) {
+        Date expiration = claims.getExpiration();
+        long remainingMillis = expiration != null
+                ? expiration.getTime() - System.currentTimeMillis()
+                : CLAIMS_CACHE_DEFAULT_TTL_MILLIS;
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     // Helper method to generate a token
     public String generateToken(String userId, String username, List<Role> roles) {
         return Jwts.builder()
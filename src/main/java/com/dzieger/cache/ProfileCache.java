@@ -0,0 +1,101 @@
+package com.dzieger.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+// Bounded read-through cache of profile snapshots keyed by player id.
+// When disabled every lookup goes straight to the loader.
+public class ProfileCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfileCache.class);
+
+    private final boolean enabled;
+    private final Cache<UUID, ProfileSnapshot> cache;
+
+    public ProfileCache(boolean enabled, long maximumSize, Duration timeToLive) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(enabled ? maximumSize : 0)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    // Returns the cached snapshot or loads it, a null from the loader is not cached
+    public ProfileSnapshot get(UUID playerId, Function<UUID, ProfileSnapshot> loader) {
+        if (!enabled) {
+            return loader.apply(playerId);
+        }
+        return cache.get(playerId, loader);
+    }
+
+    // Returns the cached snapshot without loading it, null on a miss
+    public ProfileSnapshot getIfPresent(UUID playerId) {
+        return enabled ? cache.getIfPresent(playerId) : null;
+    }
+
+    // Returns the cached snapshots and loads all misses with one loader call, ids the loader leaves out are not cached
+    public Map<UUID, ProfileSnapshot> getAll(Collection<UUID> playerIds,
+                                             Function<Set<UUID>, Map<UUID, ProfileSnapshot>> loader) {
+        if (!enabled) {
+            return loader.apply(new LinkedHashSet<>(playerIds));
+        }
+        return cache.getAll(playerIds, ids -> loader.apply(new LinkedHashSet<>(ids)));
+    }
+
+    public void evict(UUID playerId) {
+        if (!enabled) {
+            return;
+        }
+        cache.invalidate(playerId);
+
+        // A read between this call and the commit could cache the old row again, so evict once more after commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(playerId);
+                }
+            });
+        }
+        log.debug("Evicted cached profile for player with id: {}", playerId);
+    }
+
+    public void evictAll() {
+        if (!enabled) {
+            return;
+        }
+        cache.invalidateAll();
+        log.debug("Evicted all cached profiles");
+    }
+
+    // Evicts the entry unless it is already at or past the given version, returns true if an entry was removed
+    public boolean evictIfOlder(UUID playerId, long version) {
+        if (!enabled) {
+            return false;
+        }
+        ProfileSnapshot snapshot = cache.getIfPresent(playerId);
+        return snapshot != null && snapshot.version() < version && cache.asMap().remove(playerId, snapshot);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Cache<UUID, ProfileSnapshot> getNativeCache() {
+        return cache;
+    }
+
+}
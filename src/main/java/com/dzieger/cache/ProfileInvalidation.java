@@ -0,0 +1,21 @@
+package com.dzieger.cache;
+
+import java.util.UUID;
+
+// Invalidation sent to every node after a profile write, encoded as "<playerId>:<version>"
+public record ProfileInvalidation(UUID playerId, long version) {
+
+    public String encode() {
+        return playerId + ":" + version;
+    }
+
+    public static ProfileInvalidation parse(String message) {
+        int separator = message == null ? -1 : message.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed profile invalidation: " + message);
+        }
+        return new ProfileInvalidation(UUID.fromString(message.substring(0, separator)),
+                Long.parseLong(message.substring(separator + 1)));
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.dzieger.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Evicts locally cached profiles that were written on any node, including this one
+@Component
+public class ProfileInvalidationListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfileInvalidationListener.class);
+
+    private final ProfileCache profileCache;
+    private final ProfileResponseCache profileResponseCache;
+
+    public ProfileInvalidationListener(ProfileCache profileCache, ProfileResponseCache profileResponseCache) {
+        this.profileCache = profileCache;
+        this.profileResponseCache = profileResponseCache;
+    }
+
+    // Every instance joins its own consumer group so each node sees every invalidation
+    @KafkaListener(id = "profileInvalidationListener",
+            topics = "${player.kafka.profile-invalidated.topic:player-profile-invalidated}",
+            groupId = "player-service-cache-${random.uuid}",
+            containerFactory = "profileInvalidationListenerContainerFactory",
+            autoStartup = "${player.kafka.listeners.auto-startup:true}")
+    public void handleInvalidations(List<String> messages) {
+        // keep only the newest version per player
+        Map<UUID, Long> versions = new LinkedHashMap<>();
+        for (String message : messages) {
+            try {
+                ProfileInvalidation invalidation = ProfileInvalidation.parse(message);
+                versions.merge(invalidation.playerId(), invalidation.version(), Math::max);
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping malformed profile invalidation: {}", message);
+            }
+        }
+
+        int evicted = 0;
+        for (Map.Entry<UUID, Long> entry : versions.entrySet()) {
+            profileResponseCache.evictIfOlder(entry.getKey(), entry.getValue());
+            if (profileCache.evictIfOlder(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        log.debug("Processed {} profile invalidations, evicted {} cached profiles", messages.size(), evicted);
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.dzieger.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+// Tells the other replicas that a profile changed so they can drop their cached copy
+@Component
+public class ProfileInvalidationPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfileInvalidationPublisher.class);
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final boolean enabled;
+    private final String topic;
+
+    public ProfileInvalidationPublisher(KafkaTemplate<String, byte[]> kafkaTemplate,
+                                        @Value("${player.cache.profile.invalidation.enabled:true}") boolean enabled,
+                                        @Value("${player.kafka.profile-invalidated.topic:player-profile-invalidated}") String topic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.enabled = enabled;
+        this.topic = topic;
+    }
+
+    public void publish(UUID playerId, long version) {
+        if (!enabled) {
+            return;
+        }
+        ProfileInvalidation invalidation = new ProfileInvalidation(playerId, version);
+
+        // Other nodes would reload the old row if they heard about the write before it committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(invalidation);
+                }
+            });
+        } else {
+            send(invalidation);
+        }
+    }
+
+    private void send(ProfileInvalidation invalidation) {
+        try {
+            kafkaTemplate.send(topic, invalidation.playerId().toString(),
+                    invalidation.encode().getBytes(StandardCharsets.US_ASCII));
+        } catch (Exception e) {
+            log.error("Failed to send profile invalidation to Kafka", e);
+        }
+    }
+
+}
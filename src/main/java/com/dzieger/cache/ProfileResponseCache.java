@@ -0,0 +1,114 @@
+package com.dzieger.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+// Fully serialized profile responses keyed by player id, bounded by the total number of bytes held.
+// An entry is only served for the profile version it was built from, so a missed eviction can never serve stale data.
+public class ProfileResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfileResponseCache.class);
+
+    // Rough cost of the key, the record and the array headers on top of the bytes themselves
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final boolean enabled;
+    private final boolean gzip;
+    private final ObjectMapper objectMapper;
+    private final Cache<UUID, SerializedResponse> cache;
+
+    public ProfileResponseCache(boolean enabled, long maximumBytes, Duration timeToLive, boolean gzip,
+                                ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        this.gzip = gzip;
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(enabled ? maximumBytes : 0)
+                .<UUID, SerializedResponse>weigher((playerId, response) -> response.sizeInBytes() + ENTRY_OVERHEAD_BYTES)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    // Returns the cached response for this version, or serializes the body of a freshly read snapshot and caches it.
+    // The entry is built under the version of the snapshot it came from, which is older than the one asked for when
+    // the read raced a write, so a body is never cached or served under a version it was not built from
+    public SerializedResponse get(UUID playerId, long version, Supplier<ProfileSnapshot> snapshot,
+                                  Function<ProfileSnapshot, ?> body) {
+        SerializedResponse cached = enabled ? cache.getIfPresent(playerId) : null;
+        if (cached != null && cached.version() == version) {
+            return cached;
+        }
+        ProfileSnapshot current = snapshot.get();
+        SerializedResponse response = serialize(current.version(), body.apply(current));
+        if (enabled) {
+            // a racing request may have cached a newer version in the meantime, keep the newest
+            cache.asMap().merge(playerId, response, (stored, fresh) -> stored.version() > fresh.version() ? stored : fresh);
+        }
+        return response;
+    }
+
+    public void evict(UUID playerId) {
+        if (enabled) {
+            cache.invalidate(playerId);
+        }
+    }
+
+    // Evicts the entry unless it is already at or past the given version
+    public void evictIfOlder(UUID playerId, long version) {
+        if (enabled) {
+            cache.asMap().computeIfPresent(playerId, (id, response) -> response.version() < version ? null : response);
+        }
+    }
+
+    public void evictAll() {
+        if (enabled) {
+            cache.invalidateAll();
+            log.debug("Evicted all cached profile responses");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Cache<UUID, SerializedResponse> getNativeCache() {
+        return cache;
+    }
+
+    // Helper methods
+
+    private SerializedResponse serialize(long version, Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            return new SerializedResponse(version, json, gzip ? compress(json) : null);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] compress(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // small bodies grow under gzip, those are only kept uncompressed
+        return out.size() < json.length ? out.toByteArray() : null;
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.dzieger.cache;
+
+import com.dzieger.dtos.ProfileDTO;
+import com.dzieger.models.PlayerProfile;
+import com.dzieger.models.Preferences;
+
+import java.util.UUID;
+
+// Immutable copy of a PlayerProfile row as it was when it was cached
+public record ProfileSnapshot(UUID playerId, long version, int gamesPlayed, int gamesWon, int leaderboardPosition,
+                              long timePlayed, int wallet, Preferences preferences) {
+
+    public static ProfileSnapshot of(PlayerProfile profile) {
+        // profiles created before preferences existed have none stored
+        Preferences preferences = profile.getPreferences() != null ? profile.getPreferences() : Preferences.empty();
+        return new ProfileSnapshot(profile.getPlayerId(), profile.getVersion(), profile.getGamesPlayed(),
+                profile.getGamesWon(), profile.getLeaderboardPosition(), profile.getTimePlayed(), profile.getWallet(),
+                preferences);
+    }
+
+    public ProfileDTO toProfileDTO() {
+        return new ProfileDTO(gamesPlayed, gamesWon, leaderboardPosition, timePlayed, wallet, preferences.toMap());
+    }
+
+}
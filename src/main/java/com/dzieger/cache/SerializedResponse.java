@@ -0,0 +1,10 @@
+package com.dzieger.cache;
+
+// A response body serialized once for a given profile version, gzip is null when compressing did not make it smaller
+public record SerializedResponse(long version, byte[] json, byte[] gzip) {
+
+    public int sizeInBytes() {
+        return json.length + (gzip != null ? gzip.length : 0);
+    }
+
+}
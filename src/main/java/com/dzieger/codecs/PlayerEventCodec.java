@@ -0,0 +1,260 @@
+package com.dzieger.codecs;
+
+import com.dzieger.eventPayloadDtos.GameCompletedEvent;
+import com.dzieger.eventPayloadDtos.LeaderboardStatsEvent;
+import com.dzieger.eventPayloadDtos.LeaderboardUpdatedEvent;
+import com.dzieger.eventPayloadDtos.PreferencesUpdatedEvent;
+import com.dzieger.exceptions.InvalidEventPayloadException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// Binary wire format for the player events. Every message starts with a 3 byte header:
+// a 0x00 magic byte, then the schema id as a short. The body uses fixed-width big-endian fields,
+// a UUID is written as its two longs. A payload that does not start with the magic byte is read as JSON,
+// which keeps producers that still send JSON working.
+//
+//   schema 1  GameCompletedEvent       uuid, won (1 byte)
+//   schema 2  LeaderboardUpdatedEvent  uuid, newLeaderboardPosition (int)
+//   schema 3  PreferencesUpdatedEvent  uuid, entry count (int), then per entry key, type tag, value
+//   schema 4  LeaderboardStatsEvent    uuid, stats (double)
+//   schema 5  LeaderboardUpdatedEvent  uuid, newLeaderboardPosition (int), sequence (long)
+//   schema 6  GameCompletedEvent       uuid, won (1 byte), eventId (uuid), written when the event has an id
+//
+// New versions of an event get a new schema id, existing ids are never changed.
+@Component
+public class PlayerEventCodec {
+
+    public static final byte MAGIC_BYTE = 0x00;
+
+    static final short GAME_COMPLETED_V1 = 1;
+    static final short LEADERBOARD_UPDATED_V1 = 2;
+    static final short PREFERENCES_UPDATED_V1 = 3;
+    static final short LEADERBOARD_STATS_V1 = 4;
+    static final short LEADERBOARD_UPDATED_V2 = 5;
+    static final short GAME_COMPLETED_V2 = 6;
+
+    private static final int HEADER_SIZE = 3;
+    private static final int UUID_SIZE = 16;
+
+    // Type tags for preference values
+    private static final byte NULL = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte STRING = 5;
+
+    private final ObjectMapper objectMapper;
+    private final boolean writeJson;
+
+    public PlayerEventCodec(PreferenceCodec preferenceCodec,
+                            @Value("${player.kafka.event-format:json}") String eventFormat) {
+        this.objectMapper = preferenceCodec.getObjectMapper();
+        this.writeJson = "json".equalsIgnoreCase(eventFormat);
+    }
+
+    public byte[] encode(Object event) {
+        if (writeJson) {
+            return encodeJson(event);
+        }
+        if (event instanceof LeaderboardStatsEvent stats) {
+            ByteBuffer buffer = header(LEADERBOARD_STATS_V1, UUID_SIZE + Double.BYTES);
+            putUuid(buffer, stats.getPlayerId());
+            buffer.putDouble(stats.getStats());
+            return buffer.array();
+        }
+        if (event instanceof GameCompletedEvent completed) {
+            boolean hasEventId = completed.getEventId() != null;
+            ByteBuffer buffer = header(hasEventId ? GAME_COMPLETED_V2 : GAME_COMPLETED_V1,
+                    UUID_SIZE + 1 + (hasEventId ? UUID_SIZE : 0));
+            putUuid(buffer, completed.getPlayerId());
+            buffer.put((byte) (completed.isWon() ? 1 : 0));
+            if (hasEventId) {
+                putUuid(buffer, completed.getEventId());
+            }
+            return buffer.array();
+        }
+        if (event instanceof LeaderboardUpdatedEvent updated) {
+            ByteBuffer buffer = header(LEADERBOARD_UPDATED_V2, UUID_SIZE + Integer.BYTES + Long.BYTES);
+            putUuid(buffer, updated.getPlayerId());
+            buffer.putInt(updated.getNewLeaderboardPosition());
+            buffer.putLong(updated.getSequence());
+            return buffer.array();
+        }
+        if (event instanceof PreferencesUpdatedEvent preferences) {
+            return encodePreferencesUpdated(preferences);
+        }
+        throw new InvalidEventPayloadException("No schema for event type " +
+                (event == null ? "null" : event.getClass().getName()));
+    }
+
+    public byte[] encodeJson(Object event) {
+        try {
+            return objectMapper.writeValueAsBytes(event);
+        } catch (IOException e) {
+            throw new InvalidEventPayloadException("Unable to convert event to JSON", e);
+        }
+    }
+
+    public <T> T decode(byte[] data, Class<T> type) {
+        return decode(ByteBuffer.wrap(data), type);
+    }
+
+    // Reads from the buffer's position to its limit, the buffer is not copied
+    public <T> T decode(ByteBuffer data, Class<T> type) {
+        if (!data.hasRemaining()) {
+            throw new InvalidEventPayloadException("Empty event payload");
+        }
+        if (data.get(data.position()) != MAGIC_BYTE) {
+            return decodeJson(data, type);
+        }
+
+        try {
+            ByteBuffer buffer = data.slice();
+            buffer.get();
+            short schemaId = buffer.getShort();
+            Object event = switch (schemaId) {
+                case GAME_COMPLETED_V1 -> new GameCompletedEvent(getUuid(buffer), buffer.get() != 0);
+                case GAME_COMPLETED_V2 -> new GameCompletedEvent(getUuid(buffer), buffer.get() != 0, getUuid(buffer));
+                case LEADERBOARD_UPDATED_V1 -> new LeaderboardUpdatedEvent(getUuid(buffer), buffer.getInt());
+                case LEADERBOARD_UPDATED_V2 -> new LeaderboardUpdatedEvent(getUuid(buffer), buffer.getInt(), buffer.getLong());
+                case PREFERENCES_UPDATED_V1 -> new PreferencesUpdatedEvent(getUuid(buffer), getPreferences(buffer));
+                case LEADERBOARD_STATS_V1 -> new LeaderboardStatsEvent(getUuid(buffer), buffer.getDouble());
+                default -> throw new InvalidEventPayloadException("Unknown event schema id " + schemaId);
+            };
+            if (!type.isInstance(event)) {
+                throw new InvalidEventPayloadException("Schema id " + schemaId + " is not a " + type.getSimpleName());
+            }
+            return type.cast(event);
+        } catch (BufferUnderflowException e) {
+            throw new InvalidEventPayloadException("Truncated event payload", e);
+        }
+    }
+
+    // Helper methods
+
+    private <T> T decodeJson(ByteBuffer data, Class<T> type) {
+        try {
+            if (data.hasArray()) {
+                return objectMapper.readValue(data.array(), data.arrayOffset() + data.position(), data.remaining(), type);
+            }
+            byte[] copy = new byte[data.remaining()];
+            data.duplicate().get(copy);
+            return objectMapper.readValue(copy, type);
+        } catch (IOException e) {
+            throw new InvalidEventPayloadException("Unable to read event from JSON", e);
+        }
+    }
+
+    private static ByteBuffer header(short schemaId, int bodySize) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bodySize);
+        buffer.put(MAGIC_BYTE);
+        buffer.putShort(schemaId);
+        return buffer;
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static byte[] encodePreferencesUpdated(PreferencesUpdatedEvent event) {
+        Map<String, Object> preferences = event.getNewPreferences() == null ? Map.of() : event.getNewPreferences();
+        // grown on overflow, preference maps are a handful of short entries
+        ByteBuffer buffer = header(PREFERENCES_UPDATED_V1, UUID_SIZE + Integer.BYTES + preferences.size() * 32);
+        putUuid(buffer, event.getPlayerId());
+        buffer.putInt(preferences.size());
+        for (Map.Entry<String, Object> entry : preferences.entrySet()) {
+            buffer = putString(buffer, entry.getKey());
+            buffer = putValue(buffer, entry.getValue());
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    private static ByteBuffer putValue(ByteBuffer buffer, Object value) {
+        if (value == null) {
+            return ensure(buffer, 1).put(NULL);
+        } else if (value instanceof Boolean b) {
+            return ensure(buffer, 2).put(BOOLEAN).put((byte) (b ? 1 : 0));
+        } else if (value instanceof Integer i) {
+            return ensure(buffer, 1 + Integer.BYTES).put(INT).putInt(i);
+        } else if (value instanceof Long l) {
+            return ensure(buffer, 1 + Long.BYTES).put(LONG).putLong(l);
+        } else if (value instanceof Double d) {
+            return ensure(buffer, 1 + Double.BYTES).put(DOUBLE).putDouble(d);
+        } else if (value instanceof String s) {
+            return putString(ensure(buffer, 1).put(STRING), s);
+        }
+        throw new InvalidEventPayloadException("Unsupported preference value type " + value.getClass().getName());
+    }
+
+    private static ByteBuffer putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new InvalidEventPayloadException("String of " + bytes.length + " bytes is too long for an event");
+        }
+        return ensure(buffer, Short.BYTES + bytes.length).putShort((short) bytes.length).put(bytes);
+    }
+
+    private static ByteBuffer ensure(ByteBuffer buffer, int needed) {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        buffer.flip();
+        return grown.put(buffer);
+    }
+
+    private static Map<String, Object> getPreferences(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        if (size < 0 || size > buffer.remaining()) {
+            throw new InvalidEventPayloadException("Invalid preference count " + size);
+        }
+        Map<String, Object> preferences = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            String key = getString(buffer);
+            byte tag = buffer.get();
+            Object value = switch (tag) {
+                case NULL -> null;
+                case BOOLEAN -> buffer.get() != 0;
+                case INT -> buffer.getInt();
+                case LONG -> buffer.getLong();
+                case DOUBLE -> buffer.getDouble();
+                case STRING -> getString(buffer);
+                default -> throw new InvalidEventPayloadException("Unknown preference value tag " + tag);
+            };
+            preferences.put(key, value);
+        }
+        return preferences;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new InvalidEventPayloadException("Invalid string length " + length);
+        }
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.dzieger.codecs;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+
+// Kafka value deserializer for one event type, reads the binary format and falls back to JSON
+public class PlayerEventDeserializer<T> implements Deserializer<T> {
+
+    private final PlayerEventCodec playerEventCodec;
+    private final Class<T> type;
+
+    public PlayerEventDeserializer(PlayerEventCodec playerEventCodec, Class<T> type) {
+        this.playerEventCodec = playerEventCodec;
+        this.type = type;
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return data == null ? null : playerEventCodec.decode(data, type);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        // the consumer hands over a view of its fetch buffer, decoding from it avoids a copy. Only reached when the
+        // wrapper forwards this overload, see PlayerEventErrorHandlingDeserializer
+        return data == null ? null : playerEventCodec.decode(data, type);
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.dzieger.codecs;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.nio.ByteBuffer;
+
+// ErrorHandlingDeserializer for event values that also forwards the ByteBuffer overload the consumer calls. The base
+// class leaves it to the default method, which copies the fetch buffer into an array before the delegate sees it.
+// A payload that fails to decode is reported the same way as by the base class, a null value with the exception
+// in the record headers for the container's error handler
+public class PlayerEventErrorHandlingDeserializer<T> extends ErrorHandlingDeserializer<T> {
+
+    private final Deserializer<T> delegate;
+
+    public PlayerEventErrorHandlingDeserializer(Deserializer<T> delegate) {
+        super(delegate);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        headers.remove(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER);
+        try {
+            // the delegate reads a view, so the original bytes are still there for the failure header
+            return delegate.deserialize(topic, headers, data == null ? null : data.duplicate());
+        } catch (Exception e) {
+            SerializationUtils.deserializationException(headers, toBytes(data), e, false);
+            return null;
+        }
+    }
+
+    // Helper methods
+
+    private static byte[] toBytes(ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return bytes;
+    }
+
+}
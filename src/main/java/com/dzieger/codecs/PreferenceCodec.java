@@ -0,0 +1,74 @@
+package com.dzieger.codecs;
+
+import com.dzieger.exceptions.FailedConversionToJsonException;
+import com.dzieger.models.Preferences;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Converts player preferences between their JSON form and a map or Preferences, sharing one configured ObjectMapper.
+// ObjectReader and ObjectWriter are immutable and thread-safe, so they are built once up front.
+// The same ObjectMapper is handed to Hibernate for the preferences JSON column.
+@Component
+public class PreferenceCodec {
+
+    private static final TypeReference<Map<String, Object>> PREFERENCES_TYPE = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader preferencesReader;
+    private final ObjectWriter preferencesWriter;
+    private final ObjectReader typedPreferencesReader;
+    private final ObjectWriter typedPreferencesWriter;
+
+    public PreferenceCodec() {
+        this.objectMapper = new ObjectMapper()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.preferencesReader = objectMapper.readerFor(PREFERENCES_TYPE);
+        this.preferencesWriter = objectMapper.writerFor(PREFERENCES_TYPE);
+        this.typedPreferencesReader = objectMapper.readerFor(Preferences.class);
+        this.typedPreferencesWriter = objectMapper.writerFor(Preferences.class);
+    }
+
+    public String write(Map<String, Object> preferences) {
+        try {
+            return preferencesWriter.writeValueAsString(preferences);
+        } catch (JsonProcessingException e) {
+            throw new FailedConversionToJsonException("Unable to convert Map to Json string", e);
+        }
+    }
+
+    public Map<String, Object> read(String preferences) {
+        try {
+            return preferencesReader.readValue(preferences);
+        } catch (JsonProcessingException e) {
+            throw new FailedConversionToJsonException("Unable to convert Json string to Map", e);
+        }
+    }
+
+    public String writePreferences(Preferences preferences) {
+        try {
+            return typedPreferencesWriter.writeValueAsString(preferences);
+        } catch (JsonProcessingException e) {
+            throw new FailedConversionToJsonException("Unable to convert Preferences to Json string", e);
+        }
+    }
+
+    public Preferences readPreferences(String preferences) {
+        try {
+            return typedPreferencesReader.readValue(preferences);
+        } catch (JsonProcessingException e) {
+            throw new FailedConversionToJsonException("Unable to convert Json string to Preferences", e);
+        }
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.dzieger.config;
+
+import com.dzieger.cache.ProfileCache;
+import com.dzieger.cache.ProfileResponseCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheConfig.class);
+
+    @Value("${player.cache.profile.enabled:true}")
+    private boolean profileCacheEnabled;
+
+    @Value("${player.cache.profile.maximum-size:10000}")
+    private long profileCacheMaximumSize;
+
+    @Value("${player.cache.profile.ttl-seconds:60}")
+    private long profileCacheTtlSeconds;
+
+    @Value("${player.cache.profile-response.enabled:true}")
+    private boolean profileResponseCacheEnabled;
+
+    @Value("${player.cache.profile-response.maximum-bytes:16777216}")
+    private long profileResponseCacheMaximumBytes;
+
+    @Value("${player.cache.profile-response.ttl-seconds:60}")
+    private long profileResponseCacheTtlSeconds;
+
+    @Value("${player.cache.profile-response.gzip:true}")
+    private boolean profileResponseCacheGzip;
+
+    @Bean
+    public ProfileCache profileCache(ObjectProvider<MeterRegistry> meterRegistry) {
+        log.info("Initializing profile cache (enabled: {}, maximum size: {}, ttl: {}s)",
+                profileCacheEnabled, profileCacheMaximumSize, profileCacheTtlSeconds);
+
+        ProfileCache profileCache = new ProfileCache(profileCacheEnabled, profileCacheMaximumSize,
+                Duration.ofSeconds(profileCacheTtlSeconds));
+
+        // Publishes cache.gets (hit/miss), cache.evictions, cache.size, ... tagged cache=player.profile
+        meterRegistry.ifAvailable(registry ->
+                CaffeineCacheMetrics.monitor(registry, profileCache.getNativeCache(), "player.profile"));
+
+        return profileCache;
+    }
+
+    @Bean
+    public ProfileResponseCache profileResponseCache(ObjectMapper objectMapper,
+                                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        log.info("Initializing profile response cache (enabled: {}, maximum bytes: {}, ttl: {}s, gzip: {})",
+                profileResponseCacheEnabled, profileResponseCacheMaximumBytes, profileResponseCacheTtlSeconds,
+                profileResponseCacheGzip);
+
+        // the MVC ObjectMapper, so cached bytes match what the Jackson converter would have written
+        ProfileResponseCache profileResponseCache = new ProfileResponseCache(profileResponseCacheEnabled,
+                profileResponseCacheMaximumBytes, Duration.ofSeconds(profileResponseCacheTtlSeconds),
+                profileResponseCacheGzip, objectMapper);
+
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry,
+                profileResponseCache.getNativeCache(), "player.profile.response"));
+
+        return profileResponseCache;
+    }
+
+}
@@ -1,13 +1,17 @@
 package com.dzieger.config;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
 import javax.sql.DataSource;
 
@@ -23,6 +27,24 @@ public class DatabaseConfig {
     private String databaseUsername;
     private String databasePassword;
 
+    @Value("${player.datasource.pool.maximum-pool-size:10}")
+    private int maximumPoolSize;
+
+    @Value("${player.datasource.pool.minimum-idle:2}")
+    private int minimumIdle;
+
+    @Value("${player.datasource.pool.connection-timeout-ms:3000}")
+    private long connectionTimeoutMs;
+
+    @Value("${player.datasource.pool.idle-timeout-ms:600000}")
+    private long idleTimeoutMs;
+
+    @Value("${player.datasource.pool.max-lifetime-ms:1800000}")
+    private long maxLifetimeMs;
+
+    @Value("${player.datasource.pool.leak-detection-threshold-ms:0}")
+    private long leakDetectionThresholdMs;
+
     @Autowired
     public DatabaseConfig(Parameters params) {
         this.params = params;
@@ -37,13 +59,26 @@ public class DatabaseConfig {
     }
 
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setUrl("jdbc:postgresql://" + databaseUrl);
-        dataSource.setUsername(databaseUsername);
-        dataSource.setPassword(databasePassword);
-        dataSource.setSchema("catan_player");
-        return dataSource;
+    public DataSource dataSource(ObjectProvider<MeterRegistry> meterRegistry) {
+        log.info("Initializing pooled DataSource (maximum pool size: {})", maximumPoolSize);
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("player-service-pool");
+        config.setJdbcUrl("jdbc:postgresql://" + databaseUrl);
+        config.setUsername(databaseUsername);
+        config.setPassword(databasePassword);
+        config.setSchema("catan_player");
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setMinimumIdle(minimumIdle);
+        config.setConnectionTimeout(connectionTimeoutMs);
+        config.setIdleTimeout(idleTimeoutMs);
+        config.setMaxLifetime(maxLifetimeMs);
+        config.setLeakDetectionThreshold(leakDetectionThresholdMs);
+
+        // Publishes hikaricp.connections.active/idle/pending/acquire/usage gauges and timers
+        meterRegistry.ifAvailable(config::setMetricRegistry);
+
+        return new HikariDataSource(config);
     }
 
-}
\ No newline at end of file
+}
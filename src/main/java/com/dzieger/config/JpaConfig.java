@@ -0,0 +1,20 @@
+package com.dzieger.config;
+
+import com.dzieger.codecs.PreferenceCodec;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.type.format.jackson.JacksonJsonFormatMapper;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JpaConfig {
+
+    // JSON columns (player preferences) are read and written with the shared preferences ObjectMapper
+    @Bean
+    public HibernatePropertiesCustomizer jsonFormatMapperCustomizer(PreferenceCodec preferenceCodec) {
+        return properties -> properties.put(AvailableSettings.JSON_FORMAT_MAPPER,
+                new JacksonJsonFormatMapper(preferenceCodec.getObjectMapper()));
+    }
+
+}
@@ -0,0 +1,181 @@
+package com.dzieger.config;
+
+import com.dzieger.codecs.PlayerEventCodec;
+import com.dzieger.codecs.PlayerEventDeserializer;
+import com.dzieger.codecs.PlayerEventErrorHandlingDeserializer;
+import com.dzieger.eventPayloadDtos.GameCompletedEvent;
+import com.dzieger.eventPayloadDtos.LeaderboardUpdatedEvent;
+import com.dzieger.exceptions.InvalidEventPayloadException;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.Map;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaConsumerConfig.class);
+
+    private final KafkaProperties kafkaProperties;
+    private final SslBundles sslBundles;
+    private final PlayerEventCodec playerEventCodec;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Value("${player.kafka.game-completed.batch-size:500}")
+    private int gameCompletedBatchSize;
+
+    @Value("${player.kafka.game-completed.linger-ms:250}")
+    private int gameCompletedLingerMs;
+
+    @Value("${player.kafka.game-completed.fetch-min-bytes:16384}")
+    private int gameCompletedFetchMinBytes;
+
+    @Value("${player.kafka.game-completed.ack-count:5000}")
+    private int gameCompletedAckCount;
+
+    @Value("${player.kafka.game-completed.ack-time-ms:5000}")
+    private long gameCompletedAckTimeMs;
+
+    @Value("${player.kafka.leaderboard-updated.batch-size:5000}")
+    private int leaderboardUpdatedBatchSize;
+
+    @Value("${player.kafka.profile-invalidated.batch-size:500}")
+    private int profileInvalidatedBatchSize;
+
+    @Value("${player.kafka.listeners.retry-interval-ms:1000}")
+    private long retryIntervalMs;
+
+    @Value("${player.kafka.listeners.retry-attempts:2}")
+    private long retryAttempts;
+
+    public KafkaConsumerConfig(KafkaProperties kafkaProperties, SslBundles sslBundles, PlayerEventCodec playerEventCodec,
+                               KafkaTemplate<String, byte[]> kafkaTemplate) {
+        this.kafkaProperties = kafkaProperties;
+        this.sslBundles = sslBundles;
+        this.playerEventCodec = playerEventCodec;
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, GameCompletedEvent> gameCompletedListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, GameCompletedEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(gameCompletedConsumerFactory());
+        factory.setBatchListener(true);
+        // Offsets are only committed after the batch transaction has committed, and then only every ack-count records
+        // or ack-time-ms. A redelivery after a rebalance is dropped by the processed-events index, so committing
+        // less often costs reprocessing but never double counts
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.COUNT_TIME);
+        factory.getContainerProperties().setAckCount(gameCompletedAckCount);
+        factory.getContainerProperties().setAckTime(gameCompletedAckTimeMs);
+        factory.setCommonErrorHandler(playerEventErrorHandler());
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, LeaderboardUpdatedEvent> leaderboardUpdatedListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, LeaderboardUpdatedEvent> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(leaderboardUpdatedConsumerFactory());
+        factory.setBatchListener(true);
+        // a re-ranking changes most positions at once, the whole poll is applied in one statement
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(playerEventErrorHandler());
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> profileInvalidationListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(profileInvalidationConsumerFactory());
+        factory.setBatchListener(true);
+        return factory;
+    }
+
+    // The listeners name the failing record with a BatchListenerFailedException, only that record is retried and then
+    // published to <topic>-dlt, the records before it are committed and the ones after it redelivered. A failure of
+    // the whole batch is retried as a batch and then dead-letters every record of it
+    @Bean
+    public DefaultErrorHandler playerEventErrorHandler() {
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, e) -> new TopicPartition(record.topic() + "-dlt", -1)) {
+            @Override
+            protected ProducerRecord<Object, Object> createProducerRecord(ConsumerRecord<?, ?> record,
+                    TopicPartition topicPartition, Headers headers, byte[] key, byte[] value) {
+                // an undecodable record is published with its original bytes, a decoded event is encoded again
+                // since the template only sends byte arrays
+                return new ProducerRecord<>(topicPartition.topic(), null, record.timestamp(),
+                        key != null ? key : record.key(),
+                        value != null || record.value() == null ? value : playerEventCodec.encode(record.value()),
+                        headers);
+            }
+        };
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer, new FixedBackOff(retryIntervalMs, retryAttempts));
+        // a payload that cannot be decoded now never will be
+        errorHandler.addNotRetryableExceptions(InvalidEventPayloadException.class);
+        return errorHandler;
+    }
+
+    // Not exposed as a bean so Boot's default consumer factory stays in place for other listeners
+    private ConsumerFactory<String, GameCompletedEvent> gameCompletedConsumerFactory() {
+        log.info("Initializing game-completed consumer factory (batch size: {}, linger: {}ms)",
+                gameCompletedBatchSize, gameCompletedLingerMs);
+
+        Map<String, Object> props = kafkaProperties.buildConsumerProperties(sslBundles);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // The broker holds a fetch until fetch.min.bytes are available or the linger time has passed
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, gameCompletedBatchSize);
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, gameCompletedLingerMs);
+        props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, gameCompletedFetchMinBytes);
+
+        // binary events and JSON from producers that have not switched yet
+        PlayerEventDeserializer<GameCompletedEvent> valueDeserializer =
+                new PlayerEventDeserializer<>(playerEventCodec, GameCompletedEvent.class);
+        return new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(),
+                new PlayerEventErrorHandlingDeserializer<>(valueDeserializer));
+    }
+
+    private ConsumerFactory<String, LeaderboardUpdatedEvent> leaderboardUpdatedConsumerFactory() {
+        log.info("Initializing leaderboard-updated consumer factory (batch size: {})", leaderboardUpdatedBatchSize);
+
+        Map<String, Object> props = kafkaProperties.buildConsumerProperties(sslBundles);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, leaderboardUpdatedBatchSize);
+
+        PlayerEventDeserializer<LeaderboardUpdatedEvent> valueDeserializer =
+                new PlayerEventDeserializer<>(playerEventCodec, LeaderboardUpdatedEvent.class);
+        return new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(),
+                new PlayerEventErrorHandlingDeserializer<>(valueDeserializer));
+    }
+
+    private ConsumerFactory<String, String> profileInvalidationConsumerFactory() {
+        log.info("Initializing profile invalidation consumer factory (batch size: {})", profileInvalidatedBatchSize);
+
+        Map<String, Object> props = kafkaProperties.buildConsumerProperties(sslBundles);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, profileInvalidatedBatchSize);
+        // A node starts with an empty cache, so invalidations sent before it joined are irrelevant
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new StringDeserializer());
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.dzieger.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class KafkaProducerConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaProducerConfig.class);
+
+    private final KafkaProperties kafkaProperties;
+    private final SslBundles sslBundles;
+
+    @Value("${player.kafka.producer.profile:throughput}")
+    private String producerProfile;
+
+    public KafkaProducerConfig(KafkaProperties kafkaProperties, SslBundles sslBundles) {
+        this.kafkaProperties = kafkaProperties;
+        this.sslBundles = sslBundles;
+    }
+
+    // Customizes Boot's producer factory rather than replacing it, so the KafkaTemplate stays Boot's
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer producerProfileCustomizer() {
+        ProducerProfile profile = ProducerProfile.valueOf(producerProfile.trim().toUpperCase());
+
+        // anything set explicitly under spring.kafka.producer.* wins over the profile
+        Map<String, Object> configs = new HashMap<>(profile.configs());
+        configs.keySet().removeAll(kafkaProperties.buildProducerProperties(sslBundles).keySet());
+        log.info("Initializing Kafka producer with the {} profile: {}", profile, configs);
+
+        return producerFactory -> producerFactory.updateConfigs(configs);
+    }
+
+}
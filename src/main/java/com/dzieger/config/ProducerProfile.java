@@ -0,0 +1,41 @@
+package com.dzieger.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.Map;
+
+// Producer settings for the events this service sends, selected with player.kafka.producer.profile.
+// LATENCY and THROUGHPUT are idempotent with acks=all, so a retried send can neither duplicate nor
+// reorder the events of one player within their partition.
+public enum ProducerProfile {
+
+    // leaves the Kafka client defaults alone
+    DEFAULT(Map.of()),
+
+    // sends every record as soon as possible, for low traffic where a few ms per event matter
+    LATENCY(Map.of(
+            ProducerConfig.LINGER_MS_CONFIG, 0,
+            ProducerConfig.BATCH_SIZE_CONFIG, 16384,
+            ProducerConfig.COMPRESSION_TYPE_CONFIG, "none",
+            ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+            ProducerConfig.ACKS_CONFIG, "all")),
+
+    // waits up to 20ms to fill 128KB batches and compresses them, the outbox relay sends in bursts
+    THROUGHPUT(Map.of(
+            ProducerConfig.LINGER_MS_CONFIG, 20,
+            ProducerConfig.BATCH_SIZE_CONFIG, 131072,
+            ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4",
+            ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+            ProducerConfig.ACKS_CONFIG, "all"));
+
+    private final Map<String, Object> configs;
+
+    ProducerProfile(Map<String, Object> configs) {
+        this.configs = configs;
+    }
+
+    public Map<String, Object> configs() {
+        return configs;
+    }
+
+}
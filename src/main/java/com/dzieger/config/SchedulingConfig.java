@@ -0,0 +1,10 @@
+package com.dzieger.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Always loaded, so @Scheduled jobs such as the processed-events prune run whichever optional components are enabled
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,19 @@
+package com.dzieger.config;
+
+import com.dzieger.controllers.SerializedResponseConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // ahead of Jackson, which would otherwise serialize the SerializedResponse record itself
+        converters.add(0, new SerializedResponseConverter());
+    }
+
+}
@@ -1,20 +1,60 @@
 package com.dzieger.controllers;
 
+import com.dzieger.cache.ProfileResponseCache;
+import com.dzieger.cache.ProfileSnapshot;
+import com.dzieger.cache.SerializedResponse;
 import com.dzieger.dtos.ProfileIdDTO;
+import com.dzieger.dtos.ProfileLookupDTO;
 import com.dzieger.dtos.PreferencesDTO;
 import com.dzieger.dtos.ProfileDTO;
 import com.dzieger.dtos.WalletDTO;
+import com.dzieger.eventPayloadDtos.GameCompletedEvent;
+import com.dzieger.eventPayloadDtos.LeaderboardUpdatedEvent;
+import com.dzieger.exceptions.InvalidEventPayloadException;
+import com.dzieger.exceptions.PreconditionFailedException;
+import com.dzieger.logging.LogSampler;
 import com.dzieger.services.PlayerProfileService;
+import com.dzieger.services.ProfileImportResult;
+import com.dzieger.services.ProfileLookup;
+import com.dzieger.services.ProfileTransferService;
+import com.dzieger.services.VersionedResult;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.security.access.annotation.Secured;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/v1/player")
@@ -24,95 +64,334 @@ public class PlayerProfileController {
 
     private static final Logger log = LoggerFactory.getLogger(PlayerProfileController.class);
 
+    // Reports a deserialization exception header that cannot be read back
+    private static final LogAccessor KAFKA_LOG = new LogAccessor(PlayerProfileController.class);
+
+    // Per-request INFO lines are sampled so a busy node does not spend its time logging
+    private static final LogSampler REQUEST_LOG = new LogSampler(20, Duration.ofSeconds(1));
+
+    // Writes the entries of bulk lookups one at a time instead of building the whole response first
+    private static final ObjectMapper LOOKUP_MAPPER = new ObjectMapper()
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    // Appended to the ETag of gzip-encoded bodies, If-Match accepts the version in either form
+    private static final String GZIP_ETAG_SUFFIX = "-gzip";
+
     private final PlayerProfileService playerProfileService;
+    private final ProfileTransferService profileTransferService;
+    private final ProfileResponseCache profileResponseCache;
 
-    public PlayerProfileController(PlayerProfileService playerProfileService) {
+    public PlayerProfileController(PlayerProfileService playerProfileService,
+                                   ProfileTransferService profileTransferService,
+                                   ProfileResponseCache profileResponseCache) {
         this.playerProfileService = playerProfileService;
+        this.profileTransferService = profileTransferService;
+        this.profileResponseCache = profileResponseCache;
     }
 
     @PostMapping("/v1/profile")
     public ResponseEntity<ApiResponse<String>> createProfile(@RequestHeader("Authorization") String token) {
-        log.info("Creating profile for player");
         String result = playerProfileService.createProfile(token);
-        log.info("Profile created successfully");
+        if (REQUEST_LOG.tryAcquire()) {
+            log.info("Profile created successfully");
+        }
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(new ApiResponse<>(true, "Profile created successfully", result));
     }
 
 
+    // GETs answer If-None-Match with 304 from the profile version alone, the body is only built when it changed.
+    // create=true makes a first read create the profile with default preferences instead of answering 204
     @GetMapping("/v1/profile")
-    public ResponseEntity<ApiResponse<ProfileDTO>> getProfile(@RequestHeader("Authorization") String token) {
-        log.info("Retrieving profile for token: {}", token);
-        ProfileDTO profile = playerProfileService.getProfile(token);
-        log.info("Profile retrieved successfully: {}", profile);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Profile retrieved successfully", profile));
+    public ResponseEntity<?> getProfile(@RequestHeader("Authorization") String token,
+                                        @RequestParam(name = "create", defaultValue = "false") boolean create,
+                                        WebRequest request) {
+        long version = playerProfileService.getProfileVersion(token, create);
+        String etag = etagOf(version);
+        if (profileResponseCache.isEnabled()) {
+            // the gzip body is another representation of the same version and has its own strong ETag, a client
+            // holding either one already has the current profile
+            String current = notModifiedEtag(request, etag, gzipEtagOf(version));
+            if (current != null) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(current)
+                        .varyBy(HttpHeaders.ACCEPT_ENCODING).build();
+            }
+            // the whole response is serialized once per profile version and written as bytes afterwards. The body can
+            // come from an older snapshot than the version read above, so the ETag is always the one of the entry served
+            SerializedResponse response = profileResponseCache.get(playerProfileService.getPlayerId(token), version,
+                    () -> playerProfileService.getProfileSnapshot(token, create),
+                    snapshot -> new ApiResponse<>(true, "Profile retrieved successfully", snapshot.toProfileDTO()));
+            boolean gzip = response.gzip() != null && acceptsGzip(request);
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                    .eTag(gzip ? gzipEtagOf(response.version()) : etagOf(response.version()))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return builder.body(response);
+        }
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        ProfileDTO profile = playerProfileService.getProfile(token, create);
+        log.debug("Profile retrieved successfully: {}", profile);
+        return ResponseEntity.ok().eTag(etag).body(new ApiResponse<>(true, "Profile retrieved successfully", profile));
     }
 
 
     @DeleteMapping("/v1/profile")
     public ResponseEntity<ApiResponse<String>> deleteProfile(@Valid @RequestBody ProfileIdDTO playerId) {
-        log.info("Deleting profile for player: {}", playerId.getPlayerId());
         String result = playerProfileService.deleteProfile(playerId.getPlayerId());
-        log.info("Profile deleted successfully");
+        log.info("Profile deleted for player: {}", playerId.getPlayerId());
         return ResponseEntity.ok(new ApiResponse<>(true, "Profile deleted successfully", result));
     }
 
     @GetMapping("/v1/profile/preferences")
-    public ResponseEntity<ApiResponse<PreferencesDTO>> getPreferences(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<ApiResponse<PreferencesDTO>> getPreferences(@RequestHeader("Authorization") String token,
+                                                                      WebRequest request) {
+        String etag = etagOf(playerProfileService.getProfileVersion(token));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         PreferencesDTO preferences = playerProfileService.getProfilePreferences(token);
-        log.info("Preferences: {}", preferences);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Preferences retrieved successfully", preferences));
+        log.debug("Preferences: {}", preferences);
+        return ResponseEntity.ok().eTag(etag)
+                .body(new ApiResponse<>(true, "Preferences retrieved successfully", preferences));
     }
 
 
     @PatchMapping("/v1/profile/preferences")
 
-    public ResponseEntity<?> updateProfilePreferences(@RequestHeader("Authorization") String token, @RequestBody Map<String, Object> preferences) {
+    public ResponseEntity<?> updateProfilePreferences(@RequestHeader("Authorization") String token, @RequestBody Map<String, Object> preferences,
+                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         if (preferences == null || preferences.isEmpty()) {
             return ResponseEntity.badRequest().body(new ApiResponse<>(false, "Preferences cannot be empty"));
         }
-        PreferencesDTO updatedPreferences = playerProfileService.updateProfilePreferences(token, preferences);
-        log.info("Updated preferences: {}", updatedPreferences);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Preferences updated successfully", updatedPreferences));
+        VersionedResult<PreferencesDTO> updatedPreferences = playerProfileService.updateProfilePreferences(token,
+                preferences, expectedVersion(ifMatch, token));
+        log.debug("Updated preferences: {}", updatedPreferences.value());
+        return ResponseEntity.ok().eTag(etagOf(updatedPreferences.version()))
+                .body(new ApiResponse<>(true, "Preferences updated successfully", updatedPreferences.value()));
     }
 
 
     @GetMapping("/v1/profile/game-preferences")
-    public ResponseEntity<ApiResponse<PreferencesDTO>> getGamePreferences(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<ApiResponse<PreferencesDTO>> getGamePreferences(@RequestHeader("Authorization") String token,
+                                                                          WebRequest request) {
+        String etag = etagOf(playerProfileService.getProfileVersion(token));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         PreferencesDTO gamePreferences = playerProfileService.getProfileGamePreferences(token);
-        log.info("Game preferences: {}", gamePreferences);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Game preferences retrieved successfully", gamePreferences));
+        log.debug("Game preferences: {}", gamePreferences);
+        return ResponseEntity.ok().eTag(etag)
+                .body(new ApiResponse<>(true, "Game preferences retrieved successfully", gamePreferences));
     }
 
 
 
-//    @KafkaListener(topics = "game-completed", groupId = "player-service")
-//    public void handleGameCompleted(GameCompletedEvent event) {
-//        // process game completion
-//        // add coins to wallet
-//        playerProfileService.handleGameCompleted(event);
-//    }
-//
-//    @KafkaListener(topics = "leaderbaord-updated", groupId = "player-service")
-//    public void handleLeaderboardUpdated(LeaderboardUpdatedEvent event) {
-//        // process leaderboard update
-//        playerProfileService.handleLeaderboardUpdated(event);
-//    }
+    // Internal lookups for lobby, spectator and tournament views, ids without a profile are listed under missing
+    @Secured("ROLE_ADMIN")
+    @PostMapping("/v1/profiles/lookup")
+    public ResponseEntity<StreamingResponseBody> lookupProfiles(@Valid @RequestBody ProfileLookupDTO request) {
+        ProfileLookup lookup = playerProfileService.lookupProfiles(request.getPlayerIds());
+        return streamLookup(lookup, "Profiles retrieved successfully", "profiles", ProfileSnapshot::toProfileDTO);
+    }
+
+    @Secured("ROLE_ADMIN")
+    @PostMapping("/v1/profiles/game-preferences/lookup")
+    public ResponseEntity<StreamingResponseBody> lookupGamePreferences(@Valid @RequestBody ProfileLookupDTO request) {
+        ProfileLookup lookup = playerProfileService.lookupProfiles(request.getPlayerIds());
+        return streamLookup(lookup, "Game preferences retrieved successfully", "gamePreferences",
+                snapshot -> snapshot.preferences().gamePreferences().toMap());
+    }
+
+    // Streams every profile as one JSON object per line, updatedFrom/updatedTo select the rows for an incremental export
+    @Secured("ROLE_ADMIN")
+    @GetMapping(value = "/v1/profiles/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProfiles(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedTo) {
+        log.info("Exporting profiles updated from {} to {}", updatedFrom, updatedTo);
+        StreamingResponseBody body = out -> profileTransferService.exportProfiles(updatedFrom, updatedTo, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // Bulk import of profiles in the export format, a stored profile is only replaced by a row updated after it
+    @Secured("ROLE_ADMIN")
+    @PostMapping(value = "/v1/profiles/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ApiResponse<ProfileImportResult>> importProfiles(InputStream body) throws IOException {
+        ProfileImportResult result = profileTransferService.importProfiles(body);
+        log.info("Imported profiles: {}", result);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Profiles imported successfully", result));
+    }
+
+    @KafkaListener(topics = "${player.kafka.game-completed.topic:game-completed}", groupId = "player-service",
+            containerFactory = "gameCompletedListenerContainerFactory",
+            autoStartup = "${player.kafka.listeners.auto-startup:true}")
+    public void handleGameCompleted(List<ConsumerRecord<String, GameCompletedEvent>> records) {
+        // process a batch of game completions, offsets are committed after the batch transaction
+        handleUntilUndecodable(records, playerProfileService::handleGameCompletedBatch);
+    }
+
+    @KafkaListener(topics = "${player.kafka.leaderboard-updated.topic:leaderboard-updated}", groupId = "player-service",
+            containerFactory = "leaderboardUpdatedListenerContainerFactory",
+            autoStartup = "${player.kafka.listeners.auto-startup:true}")
+    public void handleLeaderboardUpdated(List<ConsumerRecord<String, LeaderboardUpdatedEvent>> records) {
+        // apply a batch of positions in one statement, offsets are committed after the batch transaction
+        handleUntilUndecodable(records, playerProfileService::handleLeaderboardUpdatedBatch);
+    }
 
     @PatchMapping("/v1/profile/wallet")
-    public ResponseEntity<ApiResponse<WalletDTO>> updateWallet(@RequestHeader("Authorization") String token,@RequestBody WalletDTO wallet) {
-        log.info("Updating wallet: {}, for token: {}", wallet, token);
-        WalletDTO updatedWallet = playerProfileService.updateWallet(token, wallet);
-        log.info("Updated wallet: {}", updatedWallet);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Wallet updated successfully", updatedWallet));
+    public ResponseEntity<ApiResponse<WalletDTO>> updateWallet(@RequestHeader("Authorization") String token,@RequestBody WalletDTO wallet,
+                                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        VersionedResult<WalletDTO> updatedWallet = playerProfileService.updateWallet(token, wallet,
+                expectedVersion(ifMatch, token));
+        if (REQUEST_LOG.tryAcquire()) {
+            log.info("Updated wallet by {}, new balance: {}", wallet.getChangeAmount(), updatedWallet.value().getBalance());
+        }
+        return ResponseEntity.ok().eTag(etagOf(updatedWallet.version()))
+                .body(new ApiResponse<>(true, "Wallet updated successfully", updatedWallet.value()));
     }
 
 
     @GetMapping("/v1/profile/wallet")
-    public ResponseEntity<ApiResponse<WalletDTO>> getWallet(@RequestHeader("Authorization") String token) {
+    public ResponseEntity<ApiResponse<WalletDTO>> getWallet(@RequestHeader("Authorization") String token,
+                                                            WebRequest request) {
+        String etag = etagOf(playerProfileService.getProfileVersion(token));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         WalletDTO wallet = playerProfileService.getWallet(token);
-        log.info("Wallet: {}", wallet);
-        return ResponseEntity.ok(new ApiResponse<>(true, "Wallet retrieved successfully", wallet));
+        log.debug("Wallet: {}", wallet);
+        return ResponseEntity.ok().eTag(etag).body(new ApiResponse<>(true, "Wallet retrieved successfully", wallet));
+    }
+
+
+    // Helper Methods
+
+    private static boolean acceptsGzip(WebRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    // Strong ETag of a profile, every write to the row bumps its version
+    // Hands the events before the first record without a value to the batch handler, then reports that record to the
+    // container's error handler. It commits the records before it, dead-letters it and redelivers the ones after it
+    private static <T> void handleUntilUndecodable(List<ConsumerRecord<String, T>> records, Consumer<List<T>> handler) {
+        List<T> events = new ArrayList<>(records.size());
+        for (int index = 0; index < records.size(); index++) {
+            ConsumerRecord<String, T> record = records.get(index);
+            if (record.value() == null) {
+                if (!events.isEmpty()) {
+                    handler.accept(events);
+                }
+                DeserializationException cause = SerializationUtils.getExceptionFromHeader(record,
+                        SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, KAFKA_LOG);
+                throw new BatchListenerFailedException("Undecodable event at " + record.topic() + "-" +
+                        record.partition() + "@" + record.offset(),
+                        cause != null ? cause : new InvalidEventPayloadException("Empty event payload"), index);
+            }
+            events.add(record.value());
+        }
+        handler.accept(events);
+    }
+
+    private static String etagOf(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // The version an If-Match header asks for, null when absent or "*". A list of ETags makes the write conditional on
+    // whichever of them is current. Weak tags never match, as RFC 9110 requires
+    private Long expectedVersion(String ifMatch, String token) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        Set<Long> versions = new LinkedHashSet<>();
+        for (ETag etag : ETag.parse(ifMatch)) {
+            if (etag.isWildcard()) {
+                return null;
+            }
+            Long version = etag.weak() ? null : versionOf(etag);
+            if (version != null) {
+                versions.add(version);
+            }
+        }
+        if (versions.size() == 1) {
+            return versions.iterator().next();
+        }
+        if (!versions.isEmpty()) {
+            // the write stays conditional on the current version, so a write in between still fails it
+            long current = playerProfileService.getProfileVersion(token);
+            if (versions.contains(current)) {
+                return current;
+            }
+        }
+        throw new PreconditionFailedException("If-Match does not match the current profile");
+    }
+
+    // ETag of the gzip-encoded profile body, RFC 9110 requires each content-coding to have its own strong validator
+    private static String gzipEtagOf(long version) {
+        return "\"" + version + GZIP_ETAG_SUFFIX + "\"";
+    }
+
+    // The one of the given ETags that If-None-Match lists, compared weakly as RFC 9110 requires, or null
+    private static String notModifiedEtag(WebRequest request, String... etags) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return null;
+        }
+        for (ETag requested : ETag.parse(ifNoneMatch)) {
+            for (String etag : etags) {
+                if (requested.isWildcard() || requested.compare(ETag.create(etag), false)) {
+                    return etag;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Profile version an ETag stands for in either encoding, null when it is not one of ours
+    private static Long versionOf(ETag etag) {
+        String tag = etag.tag();
+        if (tag.endsWith(GZIP_ETAG_SUFFIX)) {
+            tag = tag.substring(0, tag.length() - GZIP_ETAG_SUFFIX.length());
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // {"success":true,"message":...,"data":{"<field>":{"<playerId>":...},"missing":[...]}}
+    private ResponseEntity<StreamingResponseBody> streamLookup(ProfileLookup lookup, String message, String field,
+                                                               Function<ProfileSnapshot, Object> view) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = LOOKUP_MAPPER.getFactory().createGenerator(out)) {
+                json.writeStartObject();
+                json.writeBooleanField("success", true);
+                json.writeStringField("message", message);
+                json.writeObjectFieldStart("data");
+                json.writeObjectFieldStart(field);
+                for (Map.Entry<UUID, ProfileSnapshot> entry : lookup.found().entrySet()) {
+                    json.writeFieldName(entry.getKey().toString());
+                    LOOKUP_MAPPER.writeValue(json, view.apply(entry.getValue()));
+                }
+                json.writeEndObject();
+                json.writeArrayFieldStart("missing");
+                for (UUID playerId : lookup.missing()) {
+                    json.writeString(playerId.toString());
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+                json.writeEndObject();
+            }
+        };
+        log.debug("Streaming lookup of {} profiles, {} missing", lookup.found().size(), lookup.missing().size());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
 
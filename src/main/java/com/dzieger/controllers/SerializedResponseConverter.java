@@ -0,0 +1,46 @@
+package com.dzieger.controllers;
+
+import com.dzieger.cache.SerializedResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+// Writes pre-serialized response bytes straight to the output stream, Jackson is not involved.
+// The gzip bytes are written when the controller marked the response with Content-Encoding: gzip
+public class SerializedResponseConverter extends AbstractHttpMessageConverter<SerializedResponse> {
+
+    public SerializedResponseConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return SerializedResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected SerializedResponse readInternal(Class<? extends SerializedResponse> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Serialized responses are write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(SerializedResponse response, HttpOutputMessage outputMessage) throws IOException {
+        boolean gzip = response.gzip() != null
+                && "gzip".equals(outputMessage.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        byte[] body = gzip ? response.gzip() : response.json();
+        // the length depends on the encoding, so it is set here rather than in getContentLength
+        outputMessage.getHeaders().setContentLength(body.length);
+        outputMessage.getBody().write(body);
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.dzieger.dedup;
+
+import com.dzieger.metrics.PlayerMetrics;
+import com.dzieger.repositories.ProcessedEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Remembers the ids of consumed events so a redelivered event is applied only once.
+// The processed_events table is the record, ids are inserted in the transaction that applies the events and a
+// duplicate insert is skipped, so the table decides even when two consumers see the same event. The Bloom filter in
+// front of it spares the lookup for ids that were certainly never seen here: only ids it might contain are looked up,
+// and a batch of redeliveries is dropped after one read without writing anything.
+// Rows older than the TTL are pruned, the filter is replaced every TTL and the previous one is still consulted,
+// so an id is found for at least the TTL.
+@Component
+public class ProcessedEventIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessedEventIndex.class);
+
+    private final ProcessedEventRepository processedEventRepository;
+    private final PlayerMetrics playerMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final long expectedEvents;
+    private final double falsePositiveProbability;
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    public ProcessedEventIndex(ProcessedEventRepository processedEventRepository, PlayerMetrics playerMetrics,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${player.dedup.ttl-hours:168}") long ttlHours,
+                               @Value("${player.dedup.expected-events:1000000}") long expectedEvents,
+                               @Value("${player.dedup.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.processedEventRepository = processedEventRepository;
+        this.playerMetrics = playerMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofHours(ttlHours);
+        this.expectedEvents = expectedEvents;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.current = newGeneration();
+        this.previous = newGeneration();
+    }
+
+    // Records the ids and returns those seen for the first time. Must run in the transaction that applies the
+    // events, so an id is only recorded if its effects are committed too
+    public Set<UUID> claim(Collection<UUID> eventIds) {
+        Set<UUID> unique = new LinkedHashSet<>(eventIds);
+        if (unique.size() < eventIds.size()) {
+            playerMetrics.duplicateEvents("batch", eventIds.size() - unique.size());
+        }
+        if (unique.isEmpty()) {
+            return Set.of();
+        }
+
+        List<UUID> maybeProcessed = new ArrayList<>();
+        for (UUID eventId : unique) {
+            if (mightContain(eventId)) {
+                maybeProcessed.add(eventId);
+            }
+        }
+        Set<UUID> candidates = unique;
+        if (!maybeProcessed.isEmpty()) {
+            Set<UUID> processed = processedEventRepository.findProcessedIn(maybeProcessed);
+            playerMetrics.duplicateEvents("lookup", processed.size());
+            playerMetrics.bloomFalsePositives(maybeProcessed.size() - processed.size());
+            candidates = new LinkedHashSet<>(unique);
+            candidates.removeAll(processed);
+        }
+
+        // an id that is not inserted was recorded by another consumer since the lookup
+        Set<UUID> claimed = candidates.isEmpty()
+                ? Set.of()
+                : processedEventRepository.insertNew(candidates, LocalDateTime.now());
+        playerMetrics.duplicateEvents("insert", candidates.size() - claimed.size());
+
+        // safe before commit, a rolled back id is looked up again next time and found missing
+        Generation generation = current;
+        unique.forEach(generation.filter()::put);
+        return claimed;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        // Ids recorded before this node started, possibly by other nodes, so their redeliveries skip the insert attempt
+        long[] loaded = {0};
+        Generation generation = current;
+        transactionTemplate.executeWithoutResult(status ->
+                processedEventRepository.forEachProcessedSince(LocalDateTime.now().minus(ttl), eventId -> {
+                    generation.filter().put(eventId);
+                    loaded[0]++;
+                }));
+        log.info("Loaded {} processed event ids into the dedup filter", loaded[0]);
+    }
+
+    @Scheduled(fixedDelayString = "${player.dedup.prune-interval-ms:3600000}")
+    public void prune() {
+        Integer deleted = transactionTemplate.execute(status ->
+                processedEventRepository.deleteProcessedBefore(LocalDateTime.now().minus(ttl)));
+        log.debug("Pruned {} processed event ids", deleted);
+
+        if (current.startedAt().plus(ttl).isBefore(LocalDateTime.now())) {
+            previous = current;
+            current = newGeneration();
+            log.info("Started a new dedup filter generation");
+        }
+    }
+
+    // Helper methods
+
+    private boolean mightContain(UUID eventId) {
+        return current.filter().mightContain(eventId) || previous.filter().mightContain(eventId);
+    }
+
+    private Generation newGeneration() {
+        return new Generation(new BloomFilter(expectedEvents, falsePositiveProbability), LocalDateTime.now());
+    }
+
+    private record Generation(BloomFilter filter, LocalDateTime startedAt) {
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.dzieger.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+import java.util.UUID;
+
+public class ProfileLookupDTO {
+
+    public static final int MAX_PLAYER_IDS = 500;
+
+    @NotEmpty(message = "Player IDs cannot be empty")
+    @Size(max = MAX_PLAYER_IDS, message = "At most " + MAX_PLAYER_IDS + " player IDs can be looked up at once")
+    private List<@NotNull(message = "Player ID cannot be null") UUID> playerIds;
+
+    public ProfileLookupDTO(List<UUID> playerIds) {
+        this.playerIds = playerIds;
+    }
+
+    public ProfileLookupDTO() {
+    }
+
+    public List<UUID> getPlayerIds() {
+        return playerIds;
+    }
+
+    public void setPlayerIds(List<UUID> playerIds) {
+        this.playerIds = playerIds;
+    }
+}
@@ -6,6 +6,8 @@ public class GameCompletedEvent {
 
     private UUID playerId;
     private boolean won;
+    // Unique per event, used to drop redeliveries. Null for producers that do not send one
+    private UUID eventId;
 
     public GameCompletedEvent() {
     }
@@ -15,6 +17,12 @@ public class GameCompletedEvent {
         this.won = won;
     }
 
+    public GameCompletedEvent(UUID playerId, boolean won, UUID eventId) {
+        this.playerId = playerId;
+        this.won = won;
+        this.eventId = eventId;
+    }
+
     public UUID getPlayerId() {
         return playerId;
     }
@@ -31,4 +39,12 @@ public class GameCompletedEvent {
         this.won = won;
     }
 
+    public UUID getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(UUID eventId) {
+        this.eventId = eventId;
+    }
+
 }
@@ -0,0 +1,34 @@
+package com.dzieger.eventPayloadDtos;
+
+import java.util.UUID;
+
+public class LeaderboardStatsEvent {
+
+    private UUID playerId;
+    private double stats;
+
+    public LeaderboardStatsEvent() {
+    }
+
+    public LeaderboardStatsEvent(UUID playerId, double stats) {
+        this.playerId = playerId;
+        this.stats = stats;
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public void setPlayerId(UUID playerId) {
+        this.playerId = playerId;
+    }
+
+    public double getStats() {
+        return stats;
+    }
+
+    public void setStats(double stats) {
+        this.stats = stats;
+    }
+
+}
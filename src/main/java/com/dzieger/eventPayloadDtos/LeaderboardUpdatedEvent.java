@@ -6,6 +6,8 @@ public class LeaderboardUpdatedEvent {
 
     private UUID playerId;
     private int newLeaderboardPosition;
+    // Increases with every ranking the leaderboard service publishes, 0 when the producer does not send one
+    private long sequence;
 
     public LeaderboardUpdatedEvent() {
     }
@@ -15,6 +17,12 @@ public class LeaderboardUpdatedEvent {
         this.newLeaderboardPosition = newLeaderboardPosition;
     }
 
+    public LeaderboardUpdatedEvent(UUID playerId, int newLeaderboardPosition, long sequence) {
+        this.playerId = playerId;
+        this.newLeaderboardPosition = newLeaderboardPosition;
+        this.sequence = sequence;
+    }
+
     public UUID getPlayerId() {
         return playerId;
     }
@@ -31,4 +39,12 @@ public class LeaderboardUpdatedEvent {
         this.newLeaderboardPosition = newLeaderboardPosition;
     }
 
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
 }
@@ -0,0 +1,13 @@
+package com.dzieger.exceptions;
+
+public class InvalidEventPayloadException extends RuntimeException {
+
+    public InvalidEventPayloadException(String message) {
+        super(message);
+    }
+
+    public InvalidEventPayloadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.dzieger.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AsyncAppenderBase;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// AsyncAppender that counts the events it drops instead of blocking the logging thread.
+// Appenders are created by logback before Spring starts, so the count is kept in a static adder.
+// Drops are counted from the outcome of the decision itself, never predicted from the remaining capacity:
+// a discard below the threshold where isDiscardable says so, an overflow where the queue refuses the offer.
+public class CountingAsyncAppender extends AsyncAppender {
+
+    private static final LongAdder DROPPED = new LongAdder();
+
+    // The worker's queue, AsyncAppenderBase ignores the result of its offer so the offer is made here instead
+    private BlockingQueue<ILoggingEvent> queue;
+
+    public static long droppedEvents() {
+        return DROPPED.sum();
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        if (isStarted()) {
+            queue = workerQueue();
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // a blocking put never drops, and without the queue the base class is the only way in
+        if (!isNeverBlock() || queue == null) {
+            super.append(event);
+            return;
+        }
+        // the same steps as AsyncAppenderBase.append, apart from the offer whose result is kept
+        if (isQueueBelowDiscardingThreshold() && isDiscardable(event)) {
+            return;
+        }
+        preprocess(event);
+        if (!queue.offer(event)) {
+            DROPPED.increment();
+        }
+    }
+
+    // Only asked once the queue is below the discarding threshold, a true answer is the discard
+    @Override
+    protected boolean isDiscardable(ILoggingEvent event) {
+        boolean discardable = super.isDiscardable(event);
+        if (discardable) {
+            DROPPED.increment();
+        }
+        return discardable;
+    }
+
+    // Helper methods
+
+    @SuppressWarnings("unchecked")
+    private BlockingQueue<ILoggingEvent> workerQueue() {
+        try {
+            Field field = AsyncAppenderBase.class.getDeclaredField("blockingQueue");
+            field.setAccessible(true);
+            return (BlockingQueue<ILoggingEvent>) field.get(this);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            addWarn("Unable to reach the queue of " + getName() + ", events dropped when it is full are not counted", e);
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.dzieger.logging;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Rate limiter for per-request log statements: lets through at most `permits` calls per window.
+// Usage: if (SAMPLER.tryAcquire()) log.info(...);
+public class LogSampler {
+
+    private final long windowNanos;
+    private final int permits;
+    private final AtomicLong windowStart;
+    private final AtomicInteger used = new AtomicInteger();
+
+    public LogSampler(int permits, Duration window) {
+        if (permits < 0 || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("LogSampler needs a non-negative permit count and a positive window");
+        }
+        this.permits = permits;
+        this.windowNanos = window.toNanos();
+        this.windowStart = new AtomicLong(System.nanoTime());
+    }
+
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        // the first caller past the window end opens a new window, everyone else keeps counting
+        if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+            used.set(0);
+        }
+        return used.incrementAndGet() <= permits;
+    }
+
+}
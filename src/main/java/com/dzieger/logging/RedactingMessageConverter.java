@@ -0,0 +1,30 @@
+package com.dzieger.logging;
+
+import ch.qos.logback.classic.pattern.MessageConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.regex.Pattern;
+
+// Replaces bearer tokens and raw JWTs in the log message with a placeholder, registered for %msg in logback.xml
+public class RedactingMessageConverter extends MessageConverter {
+
+    static final String REDACTED = "[REDACTED]";
+
+    private static final Pattern BEARER = Pattern.compile("Bearer\\s+[A-Za-z0-9\\-_.~+/]+=*");
+    private static final Pattern JWT = Pattern.compile("eyJ[A-Za-z0-9\\-_]*\\.[A-Za-z0-9\\-_]*\\.[A-Za-z0-9\\-_]*");
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        return redact(event.getFormattedMessage());
+    }
+
+    static String redact(String message) {
+        // most messages contain neither, so skip the regex work for them
+        if (message == null || (!message.contains("Bearer") && !message.contains("eyJ"))) {
+            return message;
+        }
+        String redacted = BEARER.matcher(message).replaceAll("Bearer " + REDACTED);
+        return JWT.matcher(redacted).replaceAll(REDACTED);
+    }
+
+}
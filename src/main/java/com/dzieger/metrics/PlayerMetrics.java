@@ -0,0 +1,123 @@
+package com.dzieger.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Business and Kafka meters recorded by the services. Method latencies come from @Timed.
+@Component
+public class PlayerMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter walletCredits;
+    private final Counter walletDebits;
+    private final Counter walletCreditedAmount;
+    private final Counter walletDebitedAmount;
+    private final Counter outboxRelayed;
+    private final Timer outboxLag;
+
+    public PlayerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.walletCredits = walletCounter("player.wallet.changes", "credit", "Wallet changes that added coins");
+        this.walletDebits = walletCounter("player.wallet.changes", "debit", "Wallet changes that removed coins");
+        this.walletCreditedAmount = walletCounter("player.wallet.amount", "credit", "Coins added to wallets");
+        this.walletDebitedAmount = walletCounter("player.wallet.amount", "debit", "Coins removed from wallets");
+        this.outboxRelayed = Counter.builder("player.outbox.relayed")
+                .description("Outbox events acknowledged by Kafka and removed from the outbox")
+                .register(meterRegistry);
+        this.outboxLag = Timer.builder("player.outbox.lag")
+                .description("Time from writing an outbox event to its acknowledgement by Kafka")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    public void walletChanged(int changeAmount) {
+        if (changeAmount >= 0) {
+            walletCredits.increment();
+            walletCreditedAmount.increment(changeAmount);
+        } else {
+            walletDebits.increment();
+            walletDebitedAmount.increment(-(double) changeAmount);
+        }
+    }
+
+    // Times the send call itself (serialisation, partitioning, waiting for metadata or buffer space)
+    // and, separately, how long the broker took to acknowledge the record
+    public <T> CompletableFuture<T> timeKafkaSend(String topic, Supplier<CompletableFuture<T>> send) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future = send.get();
+        kafkaTimer("player.kafka.send", topic, "sent").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        return future.whenComplete((result, ex) ->
+                kafkaTimer("player.kafka.ack", topic, ex == null ? "success" : "failure")
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    public void outboxEventRelayed(Duration lag) {
+        outboxRelayed.increment();
+        outboxLag.record(lag);
+    }
+
+    public void outboxBatchRelayed(long durationNanos, boolean incomplete) {
+        Timer.builder("player.outbox.batch")
+                .description("Time to send one outbox batch and wait for its acknowledgements")
+                .tag("outcome", incomplete ? "incomplete" : "complete")
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void duplicateEvents(String detectedBy, int count) {
+        if (count > 0) {
+            Counter.builder("player.events.duplicates")
+                    .description("Redelivered events dropped before they were applied")
+                    .tag("detected_by", detectedBy)
+                    .register(meterRegistry)
+                    .increment(count);
+        }
+    }
+
+    public void bloomFalsePositives(int count) {
+        if (count > 0) {
+            Counter.builder("player.events.dedup.false.positives")
+                    .description("Event ids the dedup filter reported as seen that were not in the processed events table")
+                    .register(meterRegistry)
+                    .increment(count);
+        }
+    }
+
+    public void outboxEventsSuperseded(String topic, int superseded) {
+        Counter.builder("player.outbox.superseded")
+                .tag("topic", topic)
+                .description("Outbox events deleted unsent because a newer event for the same key was sent in their place")
+                .register(meterRegistry)
+                .increment(superseded);
+    }
+
+    // Helper methods
+
+    private Counter walletCounter(String name, String type, String description) {
+        return Counter.builder(name)
+                .tag("type", type)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    private Timer kafkaTimer(String name, String topic, String outcome) {
+        // registration is idempotent, the registry hands back the existing timer
+        return Timer.builder(name)
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+
+}
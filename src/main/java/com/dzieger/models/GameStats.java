@@ -0,0 +1,12 @@
+package com.dzieger.models;
+
+import java.util.UUID;
+
+// Games played / won totals for a single player, as stored in player_profiles, and the row version they were read at
+public record GameStats(UUID playerId, int gamesPlayed, int gamesWon, long version) {
+
+    public double winRatio() {
+        return gamesPlayed == 0 ? 0 : (double) gamesWon / gamesPlayed;
+    }
+
+}
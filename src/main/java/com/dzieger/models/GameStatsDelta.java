@@ -0,0 +1,12 @@
+package com.dzieger.models;
+
+import java.util.UUID;
+
+// Amount to add to a player's games played / won counters
+public record GameStatsDelta(UUID playerId, int gamesPlayed, int gamesWon) {
+
+    public GameStatsDelta plus(int gamesPlayed, int gamesWon) {
+        return new GameStatsDelta(playerId, this.gamesPlayed + gamesPlayed, this.gamesWon + gamesWon);
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.dzieger.models;
+
+import java.util.UUID;
+
+// A leaderboard position to apply, sequence 0 means the update carries no sequence and is not gated
+public record LeaderboardPosition(UUID playerId, int position, long sequence) {
+}
@@ -0,0 +1,5 @@
+package com.dzieger.models;
+
+// Preferences of a player after a patch was merged in, and the row version the merge produced
+public record MergedPreferences(Preferences preferences, long version) {
+}
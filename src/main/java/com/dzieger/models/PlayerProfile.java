@@ -1,6 +1,8 @@
 package com.dzieger.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
@@ -18,8 +20,10 @@ public class PlayerProfile {
     @Column(name = "player_id", nullable = false, unique = true)
     private UUID playerId;
 
-    // Player's preferences in JSON format
-    private String preferences;
+    // Player's preferences, mapped to a jsonb column on Postgres and a JSON column on H2
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "preferences")
+    private Preferences preferences;
 
     @Column(name = "games_played", nullable = false)
     private int gamesPlayed = 0;
@@ -30,6 +34,10 @@ public class PlayerProfile {
     @Column(name = "leaderboard_position")
     private int leaderboardPosition = 0;
 
+    // Sequence of the last leaderboard update applied, older updates are rejected
+    @Column(name = "leaderboard_sequence", nullable = false, columnDefinition = "bigint default 0")
+    private long leaderboardSequence = 0;
+
     @Column(name = "time_played", nullable = false)
     private long timePlayed = 0;
 
@@ -42,6 +50,11 @@ public class PlayerProfile {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
+    // Bumped by every entity write and by the in-database counter and wallet updates
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -56,7 +69,7 @@ public class PlayerProfile {
     public PlayerProfile() {
     }
 
-    public PlayerProfile(UUID playerId, String preferences, int gamesPlayed, int gamesWon, int leaderboardPosition, long timePlayed, int wallet, LocalDateTime createdAt, LocalDateTime updatedAt) {
+    public PlayerProfile(UUID playerId, Preferences preferences, int gamesPlayed, int gamesWon, int leaderboardPosition, long timePlayed, int wallet, LocalDateTime createdAt, LocalDateTime updatedAt) {
         this.playerId = playerId;
         this.preferences = preferences;
         this.gamesPlayed = gamesPlayed;
@@ -76,11 +89,11 @@ public class PlayerProfile {
         this.playerId = playerId;
     }
 
-    public String getPreferences() {
+    public Preferences getPreferences() {
         return preferences;
     }
 
-    public void setPreferences(String preferences) {
+    public void setPreferences(Preferences preferences) {
         this.preferences = preferences;
     }
 
@@ -108,6 +121,14 @@ public class PlayerProfile {
         this.leaderboardPosition = leaderboardPosition;
     }
 
+    public long getLeaderboardSequence() {
+        return leaderboardSequence;
+    }
+
+    public void setLeaderboardSequence(long leaderboardSequence) {
+        this.leaderboardSequence = leaderboardSequence;
+    }
+
     public long getTimePlayed() {
         return timePlayed;
     }
@@ -132,6 +153,14 @@ public class PlayerProfile {
         this.updatedAt = updatedAt;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public int getWallet() {
         return wallet;
     }
@@ -0,0 +1,121 @@
+package com.dzieger.models;
+
+import com.dzieger.exceptions.InvalidPreferenceException;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Player's preferences, stored as a single JSON document (jsonb on Postgres) in player_profiles.preferences.
+// Unset preferences are null and left out of the document.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record Preferences(
+        @JsonProperty(NOTIFICATIONS) Boolean notifications,
+        @JsonProperty(SOUNDS) Boolean sounds,
+        @JsonProperty(MUSIC) Boolean music,
+        @JsonProperty(DEFAULT_GAME) String defaultGame,
+        @JsonProperty(NUM_OF_PLAYERS) Integer numOfPlayers,
+        @JsonProperty(LANGUAGE) String language) {
+
+    public static final String NOTIFICATIONS = "notifications";
+    public static final String SOUNDS = "sounds";
+    public static final String MUSIC = "music";
+    public static final String DEFAULT_GAME = "default_game";
+    public static final String NUM_OF_PLAYERS = "num_of_players";
+    public static final String LANGUAGE = "language";
+
+    public static final Set<String> VALID_PREFERENCES = Set.of(NOTIFICATIONS, SOUNDS, MUSIC, DEFAULT_GAME, NUM_OF_PLAYERS, LANGUAGE);
+    public static final Set<String> GAME_PREFERENCES = Set.of(DEFAULT_GAME, NUM_OF_PLAYERS, LANGUAGE);
+
+    private static final Preferences EMPTY = new Preferences(null, null, null, null, null, null);
+    private static final Preferences DEFAULTS = new Preferences(true, true, true, "regular", null, null);
+
+    public static Preferences empty() {
+        return EMPTY;
+    }
+
+    public static Preferences defaults() {
+        return DEFAULTS;
+    }
+
+    // Returns a copy with the given preferences applied, rejecting unknown keys and values of the wrong type
+    public Preferences merge(Map<String, Object> updates) {
+        Boolean notifications = this.notifications;
+        Boolean sounds = this.sounds;
+        Boolean music = this.music;
+        String defaultGame = this.defaultGame;
+        Integer numOfPlayers = this.numOfPlayers;
+        String language = this.language;
+
+        for (Map.Entry<String, Object> entry : updates.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (key == null) {
+                throw new InvalidPreferenceException("Invalid preference: null");
+            }
+            switch (key) {
+                case NOTIFICATIONS -> notifications = asBoolean(key, value);
+                case SOUNDS -> sounds = asBoolean(key, value);
+                case MUSIC -> music = asBoolean(key, value);
+                case DEFAULT_GAME -> defaultGame = asString(key, value);
+                case NUM_OF_PLAYERS -> numOfPlayers = asInteger(key, value);
+                case LANGUAGE -> language = asString(key, value);
+                default -> throw new InvalidPreferenceException("Invalid preference: " + key);
+            }
+        }
+
+        return new Preferences(notifications, sounds, music, defaultGame, numOfPlayers, language);
+    }
+
+    // Only the preferences the game service needs
+    public Preferences gamePreferences() {
+        return new Preferences(null, null, null, defaultGame, numOfPlayers, language);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> preferences = new LinkedHashMap<>();
+        putIfSet(preferences, NOTIFICATIONS, notifications);
+        putIfSet(preferences, SOUNDS, sounds);
+        putIfSet(preferences, MUSIC, music);
+        putIfSet(preferences, DEFAULT_GAME, defaultGame);
+        putIfSet(preferences, NUM_OF_PLAYERS, numOfPlayers);
+        putIfSet(preferences, LANGUAGE, language);
+        return preferences;
+    }
+
+    // Helper methods
+
+    private static void putIfSet(Map<String, Object> preferences, String key, Object value) {
+        if (value != null) {
+            preferences.put(key, value);
+        }
+    }
+
+    private static Boolean asBoolean(String key, Object value) {
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        throw invalidValue(key);
+    }
+
+    private static String asString(String key, Object value) {
+        if (value instanceof String string) {
+            return string;
+        }
+        throw invalidValue(key);
+    }
+
+    private static Integer asInteger(String key, Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).intValue();
+        }
+        throw invalidValue(key);
+    }
+
+    private static InvalidPreferenceException invalidValue(String key) {
+        return new InvalidPreferenceException("Invalid value for preference: " + key);
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.dzieger.models;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// A player_profiles row as exported and imported in bulk, preferences are kept as their stored JSON text
+public record ProfileRow(UUID playerId, String preferences, int gamesPlayed, int gamesWon, int leaderboardPosition,
+                         long leaderboardSequence, long timePlayed, int wallet, LocalDateTime createdAt,
+                         LocalDateTime updatedAt, long version) {
+}
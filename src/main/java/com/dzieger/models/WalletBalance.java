@@ -0,0 +1,5 @@
+package com.dzieger.models;
+
+// Wallet balance of a player after a change, and the row version the change produced
+public record WalletBalance(int balance, long version) {
+}
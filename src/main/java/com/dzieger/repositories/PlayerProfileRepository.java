@@ -1,11 +1,25 @@
 package com.dzieger.repositories;
 
+import com.dzieger.models.GameStats;
 import com.dzieger.models.PlayerProfile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface PlayerProfileRepository extends JpaRepository<PlayerProfile, UUID> {
+public interface PlayerProfileRepository extends JpaRepository<PlayerProfile, UUID>, PlayerProfileRepositoryCustom {
+
+    @Query("SELECT new com.dzieger.models.GameStats(p.playerId, p.gamesPlayed, p.gamesWon, p.version) " +
+            "FROM PlayerProfile p WHERE p.playerId IN :playerIds")
+    List<GameStats> findGameStatsByPlayerIdIn(@Param("playerIds") Collection<UUID> playerIds);
+
+    @Query("SELECT p.version FROM PlayerProfile p WHERE p.playerId = :playerId")
+    Optional<Long> findVersionByPlayerId(@Param("playerId") UUID playerId);
+
 }
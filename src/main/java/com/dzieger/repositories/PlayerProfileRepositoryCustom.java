@@ -0,0 +1,62 @@
+package com.dzieger.repositories;
+
+import com.dzieger.models.GameStats;
+import com.dzieger.models.GameStatsDelta;
+import com.dzieger.models.LeaderboardPosition;
+import com.dzieger.models.MergedPreferences;
+import com.dzieger.models.PlayerProfile;
+import com.dzieger.models.Preferences;
+import com.dzieger.models.ProfileRow;
+import com.dzieger.models.WalletBalance;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public interface PlayerProfileRepositoryCustom {
+
+    // Applies every delta as `games_played = games_played + ?` in one JDBC batch, returns the update count per delta
+    int[] applyGameStatsDeltas(Collection<GameStatsDelta> deltas);
+
+    // Increments the counters in the database and returns the new totals, empty when the profile does not exist
+    Optional<GameStats> incrementGameStats(UUID playerId, int gamesPlayed, int gamesWon);
+
+    // Adds changeAmount to the wallet only if the balance stays non-negative, returns the new balance or empty otherwise
+    Optional<WalletBalance> applyWalletChange(UUID playerId, int changeAmount);
+
+    // Same as above, but only while the row is still at expectedVersion
+    Optional<WalletBalance> applyWalletChange(UUID playerId, int changeAmount, long expectedVersion);
+
+    // Merges the set fields of the patch into the stored preferences inside the database, without loading the row.
+    // Returns the merged preferences and the new version, empty when the profile does not exist
+    Optional<MergedPreferences> mergePreferences(UUID playerId, Preferences patch);
+
+    // Same as above, but only while the row is still at expectedVersion
+    Optional<MergedPreferences> mergePreferences(UUID playerId, Preferences patch, long expectedVersion);
+
+    // Inserts a fresh profile in one statement, returns the inserted row or empty when the player already has a profile
+    Optional<PlayerProfile> insertProfile(UUID playerId, Preferences preferences, int wallet);
+
+    // Returns the stored profile, inserting a fresh one first when there is none. One statement on Postgres,
+    // empty only if the profile was deleted while this ran
+    Optional<PlayerProfile> findOrInsertProfile(UUID playerId, Preferences preferences, int wallet);
+
+    // Applies all positions in one statement, skipping positions older than the last applied sequence and unsequenced
+    // positions for rows that already have one. A newer sequence for an unchanged position is recorded without a new
+    // version. Expects at most one position per player, returns the new version of every row that moved
+    Map<UUID, Long> applyLeaderboardPositions(Collection<LeaderboardPosition> positions);
+
+    // Streams every row updated in [updatedFrom, updatedTo) through a forward-only cursor, either bound may be null.
+    // Postgres only fetches in chunks of fetchSize inside a transaction, otherwise it reads the whole result
+    void forEachProfile(LocalDateTime updatedFrom, LocalDateTime updatedTo, int fetchSize, Consumer<ProfileRow> action);
+
+    // Inserts new profiles and overwrites stored ones that were updated before the imported row, returns the new version
+    // of every row written. Postgres copies the rows into a temporary staging table first, so it must run inside a
+    // transaction
+    Map<UUID, Long> upsertProfiles(List<ProfileRow> rows);
+
+}
@@ -0,0 +1,492 @@
+package com.dzieger.repositories;
+
+import com.dzieger.codecs.PreferenceCodec;
+import com.dzieger.models.GameStats;
+import com.dzieger.models.GameStatsDelta;
+import com.dzieger.models.LeaderboardPosition;
+import com.dzieger.models.MergedPreferences;
+import com.dzieger.models.PlayerProfile;
+import com.dzieger.models.Preferences;
+import com.dzieger.models.ProfileRow;
+import com.dzieger.models.WalletBalance;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public class PlayerProfileRepositoryCustomImpl implements PlayerProfileRepositoryCustom {
+
+    private static final Logger log = LoggerFactory.getLogger(PlayerProfileRepositoryCustomImpl.class);
+
+    private static final RowMapper<GameStats> GAME_STATS_MAPPER = (rs, rowNum) -> new GameStats(
+            rs.getObject("player_id", UUID.class),
+            rs.getInt("games_played"),
+            rs.getInt("games_won"),
+            rs.getLong("version"));
+
+    private static final RowMapper<ProfileRow> PROFILE_ROW_MAPPER = (rs, rowNum) -> new ProfileRow(
+            rs.getObject("player_id", UUID.class),
+            rs.getString("preferences"),
+            rs.getInt("games_played"),
+            rs.getInt("games_won"),
+            rs.getInt("leaderboard_position"),
+            rs.getLong("leaderboard_sequence"),
+            rs.getLong("time_played"),
+            rs.getInt("wallet"),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getTimestamp("updated_at").toLocalDateTime(),
+            rs.getLong("version"));
+
+    private static final RowMapper<WalletBalance> WALLET_BALANCE_MAPPER = (rs, rowNum) -> new WalletBalance(
+            rs.getInt("wallet"),
+            rs.getLong("version"));
+
+    // Positions per statement, keeps each statement's arrays and row locks bounded (H2 caps arrays at 65536 elements)
+    private static final int LEADERBOARD_CHUNK_SIZE = 10_000;
+
+    private static final String PROFILE_COLUMNS = "player_id, preferences, games_played, games_won, " +
+            "leaderboard_position, leaderboard_sequence, time_played, wallet, created_at, updated_at, version";
+
+    // Attempts of the read-merge-write fallback on H2 before giving up on a busy row
+    private static final int MERGE_ATTEMPTS = 10;
+
+    // A new profile starts at the next version seed times this, so a deleted and re-created profile never reuses
+    // a version, and with it an ETag, of the one it replaced unless that one saw 2^32 writes
+    private static final long VERSION_SEED_STRIDE = 1L << 32;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PreferenceCodec preferenceCodec;
+    private final String table;
+    private final String versionSeed;
+
+    private volatile Boolean postgres;
+
+    public PlayerProfileRepositoryCustomImpl(JdbcTemplate jdbcTemplate, PreferenceCodec preferenceCodec,
+                                             @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.preferenceCodec = preferenceCodec;
+        this.table = schema.isBlank() ? "player_profiles" : schema + ".player_profiles";
+        this.versionSeed = schema.isBlank() ? "profile_version_seed" : schema + ".profile_version_seed";
+    }
+
+    @Override
+    public int[] applyGameStatsDeltas(Collection<GameStatsDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return new int[0];
+        }
+        log.debug("Applying {} game stat deltas", deltas.size());
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        for (GameStatsDelta delta : deltas) {
+            args.add(new Object[]{delta.gamesPlayed(), delta.gamesWon(), now, delta.playerId()});
+        }
+
+        return jdbcTemplate.batchUpdate(
+                "UPDATE " + table + " SET games_played = games_played + ?, games_won = games_won + ?, updated_at = ?, " +
+                        "version = version + 1 WHERE player_id = ?",
+                args);
+    }
+
+    @Override
+    public Optional<GameStats> incrementGameStats(UUID playerId, int gamesPlayed, int gamesWon) {
+        String update = "UPDATE " + table + " SET games_played = games_played + ?, games_won = games_won + ?, updated_at = ?, " +
+                "version = version + 1 WHERE player_id = ?";
+        // Postgres hands the new values back with RETURNING, H2 reads them from the FINAL TABLE of the update
+        String sql = isPostgres()
+                ? update + " RETURNING player_id, games_played, games_won, version"
+                : "SELECT player_id, games_played, games_won, version FROM FINAL TABLE (" + update + ")";
+
+        List<GameStats> result = jdbcTemplate.query(sql, GAME_STATS_MAPPER,
+                gamesPlayed, gamesWon, Timestamp.valueOf(LocalDateTime.now()), playerId);
+        return result.stream().findFirst();
+    }
+
+    @Override
+    public Optional<WalletBalance> applyWalletChange(UUID playerId, int changeAmount) {
+        return updateWallet("", playerId, changeAmount);
+    }
+
+    @Override
+    public Optional<WalletBalance> applyWalletChange(UUID playerId, int changeAmount, long expectedVersion) {
+        // the version check makes a conditional write without holding a lock between the read and the update
+        return updateWallet(" AND version = ?", playerId, changeAmount, expectedVersion);
+    }
+
+    @Override
+    public Optional<MergedPreferences> mergePreferences(UUID playerId, Preferences patch) {
+        return applyPreferencesPatch(playerId, patch, null);
+    }
+
+    @Override
+    public Optional<MergedPreferences> mergePreferences(UUID playerId, Preferences patch, long expectedVersion) {
+        return applyPreferencesPatch(playerId, patch, expectedVersion);
+    }
+
+    @Override
+    public Optional<PlayerProfile> insertProfile(UUID playerId, Preferences preferences, int wallet) {
+        List<PlayerProfile> result = jdbcTemplate.query(insertProfileSql(), this::toProfile,
+                newProfileArgs(playerId, preferences, wallet).toArray());
+        return result.stream().findFirst();
+    }
+
+    @Override
+    public Optional<PlayerProfile> findOrInsertProfile(UUID playerId, Preferences preferences, int wallet) {
+        Optional<PlayerProfile> profile;
+        if (isPostgres()) {
+            // the select only runs when the insert hit an existing row, both come back in one round trip
+            List<Object> args = newProfileArgs(playerId, preferences, wallet);
+            args.add(playerId);
+            profile = jdbcTemplate.query("WITH inserted AS (" + insertProfileSql() + ") " +
+                            "SELECT " + PROFILE_COLUMNS + " FROM inserted UNION ALL " +
+                            "SELECT " + PROFILE_COLUMNS + " FROM " + table + " " +
+                            "WHERE player_id = ? AND NOT EXISTS (SELECT 1 FROM inserted)",
+                    this::toProfile, args.toArray()).stream().findFirst();
+        } else {
+            profile = insertProfile(playerId, preferences, wallet);
+        }
+        // a profile inserted by a concurrent statement is not visible to the one above, it is read once it committed
+        return profile.or(() -> jdbcTemplate.query("SELECT " + PROFILE_COLUMNS + " FROM " + table +
+                " WHERE player_id = ?", this::toProfile, playerId).stream().findFirst());
+    }
+
+    @Override
+    public Map<UUID, Long> applyLeaderboardPositions(Collection<LeaderboardPosition> positions) {
+        if (positions.isEmpty()) {
+            return Map.of();
+        }
+        log.debug("Applying {} leaderboard positions", positions.size());
+
+        // Stale sequences are filtered in the WHERE clause. A newer sequence always advances leaderboard_sequence, so
+        // a delayed older event can't overwrite the state after it. Unsequenced events only apply to rows that never
+        // had a sequence. Only a move bumps the version, a newer event for the same position just records its sequence
+        String newer = "(v.sequence > 0 AND p.leaderboard_sequence < v.sequence " +
+                "OR v.sequence <= 0 AND p.leaderboard_sequence <= 0)";
+        String moved = "p.leaderboard_position IS DISTINCT FROM v.position AND " + newer;
+        String unmoved = "p.leaderboard_position = v.position AND v.sequence > 0 AND p.leaderboard_sequence < v.sequence";
+        String set = "leaderboard_position = v.position, leaderboard_sequence = GREATEST(p.leaderboard_sequence, v.sequence), " +
+                "updated_at = ?, version = p.version + 1";
+        // The three arrays are joined as one table on both databases. Postgres updates from it and returns the new
+        // versions, H2 has no UPDATE ... FROM and merges instead, reading the versions from the FINAL TABLE
+        boolean postgres = isPostgres();
+        String sql = postgres
+                ? "UPDATE " + table + " AS p SET " + set + " " +
+                        "FROM unnest(?, ?, ?) AS v(player_id, position, sequence) " +
+                        "WHERE p.player_id = v.player_id AND " + moved + " RETURNING p.player_id, p.version"
+                : "SELECT player_id, version FROM FINAL TABLE (MERGE INTO " + table + " AS p " +
+                        "USING UNNEST(?, ?, ?) AS v(player_id, position, sequence) ON p.player_id = v.player_id " +
+                        "WHEN MATCHED AND " + moved + " THEN UPDATE SET " + set + ")";
+        // rows whose position is unchanged only get the newer sequence, their version and caches stay as they are
+        String sequenceSql = postgres
+                ? "UPDATE " + table + " AS p SET leaderboard_sequence = v.sequence " +
+                        "FROM unnest(?, ?, ?) AS v(player_id, position, sequence) " +
+                        "WHERE p.player_id = v.player_id AND " + unmoved
+                : "MERGE INTO " + table + " AS p " +
+                        "USING UNNEST(?, ?, ?) AS v(player_id, position, sequence) ON p.player_id = v.player_id " +
+                        "WHEN MATCHED AND " + unmoved + " THEN UPDATE SET leaderboard_sequence = v.sequence";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        Map<UUID, Long> versions = new HashMap<>();
+        List<LeaderboardPosition> all = new ArrayList<>(positions);
+        for (int from = 0; from < all.size(); from += LEADERBOARD_CHUNK_SIZE) {
+            List<LeaderboardPosition> chunk = all.subList(from, Math.min(from + LEADERBOARD_CHUNK_SIZE, all.size()));
+            UUID[] playerIds = new UUID[chunk.size()];
+            Integer[] newPositions = new Integer[chunk.size()];
+            Long[] sequences = new Long[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                playerIds[i] = chunk.get(i).playerId();
+                newPositions[i] = chunk.get(i).position();
+                sequences[i] = chunk.get(i).sequence();
+            }
+
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                int index = 1;
+                if (postgres) {
+                    statement.setTimestamp(index++, now);
+                }
+                statement.setArray(index++, connection.createArrayOf("uuid", playerIds));
+                statement.setArray(index++, connection.createArrayOf("int4", newPositions));
+                statement.setArray(index++, connection.createArrayOf("int8", sequences));
+                if (!postgres) {
+                    statement.setTimestamp(index, now);
+                }
+                return statement;
+            }, (RowCallbackHandler) rs -> versions.put(rs.getObject("player_id", UUID.class), rs.getLong("version")));
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sequenceSql);
+                statement.setArray(1, connection.createArrayOf("uuid", playerIds));
+                statement.setArray(2, connection.createArrayOf("int4", newPositions));
+                statement.setArray(3, connection.createArrayOf("int8", sequences));
+                return statement;
+            });
+        }
+        return versions;
+    }
+
+    @Override
+    public void forEachProfile(LocalDateTime updatedFrom, LocalDateTime updatedTo, int fetchSize,
+                               Consumer<ProfileRow> action) {
+        StringBuilder sql = new StringBuilder("SELECT " + PROFILE_COLUMNS + " FROM ").append(table)
+                .append(" WHERE 1 = 1");
+        if (updatedFrom != null) {
+            sql.append(" AND updated_at >= ?");
+        }
+        if (updatedTo != null) {
+            sql.append(" AND updated_at < ?");
+        }
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            int index = 1;
+            if (updatedFrom != null) {
+                statement.setTimestamp(index++, Timestamp.valueOf(updatedFrom));
+            }
+            if (updatedTo != null) {
+                statement.setTimestamp(index, Timestamp.valueOf(updatedTo));
+            }
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (RowCallbackHandler) rs -> action.accept(PROFILE_ROW_MAPPER.mapRow(rs, 0)));
+    }
+
+    @Override
+    public Map<UUID, Long> upsertProfiles(List<ProfileRow> rows) {
+        // a statement cannot update the same row twice, so only the latest row per player is sent
+        Map<UUID, ProfileRow> latest = new LinkedHashMap<>();
+        for (ProfileRow row : rows) {
+            latest.merge(row.playerId(), row, (stored, next) -> next.updatedAt().isBefore(stored.updatedAt()) ? stored : next);
+        }
+        if (latest.isEmpty()) {
+            return Map.of();
+        }
+        log.debug("Upserting {} profiles", latest.size());
+
+        // %1$s is the alias of the incoming row, EXCLUDED on Postgres and the merge source on H2
+        String update = "preferences = %1$s.preferences, games_played = %1$s.games_played, games_won = %1$s.games_won, " +
+                "leaderboard_position = %1$s.leaderboard_position, leaderboard_sequence = %1$s.leaderboard_sequence, " +
+                "time_played = %1$s.time_played, wallet = %1$s.wallet, updated_at = %1$s.updated_at, version = p.version + 1";
+        if (isPostgres()) {
+            // COPY into a staging table that is dropped on commit, then one upsert from it
+            return jdbcTemplate.execute((ConnectionCallback<Map<UUID, Long>>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE TEMP TABLE profile_import_staging (LIKE " + table +
+                            " INCLUDING DEFAULTS) ON COMMIT DROP");
+                }
+                // rows are encoded and written one at a time, the driver batches them into CopyData messages,
+                // so a chunk is never held a second time as one CSV string
+                CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                        "COPY profile_import_staging (" + PROFILE_COLUMNS + ") FROM STDIN WITH (FORMAT csv)");
+                try {
+                    StringBuilder line = new StringBuilder(256);
+                    for (ProfileRow row : latest.values()) {
+                        line.setLength(0);
+                        byte[] bytes = appendCsv(line, row).toString().getBytes(StandardCharsets.UTF_8);
+                        copyIn.writeToCopy(bytes, 0, bytes.length);
+                    }
+                    copyIn.endCopy();
+                } finally {
+                    if (copyIn.isActive()) {
+                        copyIn.cancelCopy();
+                    }
+                }
+                // rows skipped by the WHERE clause are not returned
+                Map<UUID, Long> versions = new HashMap<>();
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery("INSERT INTO " + table + " AS p (" + PROFILE_COLUMNS + ") " +
+                             "SELECT " + PROFILE_COLUMNS + " FROM profile_import_staging " +
+                             "ON CONFLICT (player_id) DO UPDATE SET " + update.formatted("EXCLUDED") +
+                             " WHERE p.updated_at < EXCLUDED.updated_at RETURNING p.player_id, p.version")) {
+                    while (rs.next()) {
+                        versions.put(rs.getObject("player_id", UUID.class), rs.getLong("version"));
+                    }
+                }
+                return versions;
+            });
+        }
+
+        // H2 has no COPY, the rows are merged one by one in a single JDBC batch
+        List<Object[]> args = new ArrayList<>(latest.size());
+        for (ProfileRow row : latest.values()) {
+            args.add(new Object[]{row.playerId(), row.preferences(), row.gamesPlayed(), row.gamesWon(),
+                    row.leaderboardPosition(), row.leaderboardSequence(), row.timePlayed(), row.wallet(),
+                    Timestamp.valueOf(row.createdAt()), Timestamp.valueOf(row.updatedAt()), row.version()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate("MERGE INTO " + table + " AS p USING (VALUES (CAST(? AS UUID), " +
+                "? FORMAT JSON, ?, ?, ?, ?, ?, ?, ?, ?, ?)) AS s(" + PROFILE_COLUMNS + ") ON p.player_id = s.player_id " +
+                "WHEN MATCHED AND p.updated_at < s.updated_at THEN UPDATE SET " + update.formatted("s") + " " +
+                "WHEN NOT MATCHED THEN INSERT (" + PROFILE_COLUMNS + ") VALUES (s.player_id, s.preferences, " +
+                "s.games_played, s.games_won, s.leaderboard_position, s.leaderboard_sequence, s.time_played, s.wallet, " +
+                "s.created_at, s.updated_at, s.version)", args);
+        // a batched MERGE returns no rows, so the versions of the written ones are read back in one query
+        List<UUID> written = new ArrayList<>();
+        int index = 0;
+        for (UUID playerId : latest.keySet()) {
+            if (counts[index++] > 0) {
+                written.add(playerId);
+            }
+        }
+        Map<UUID, Long> versions = new HashMap<>();
+        if (!written.isEmpty()) {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "SELECT player_id, version FROM " + table + " WHERE player_id = ANY(?)");
+                statement.setArray(1, connection.createArrayOf("uuid", written.toArray()));
+                return statement;
+            }, (RowCallbackHandler) rs -> versions.put(rs.getObject("player_id", UUID.class), rs.getLong("version")));
+        }
+        return versions;
+    }
+
+    // Helper methods
+
+    // Inserts a profile with zeroed stats unless the player already has one and returns the inserted row.
+    // Postgres skips the conflict with ON CONFLICT DO NOTHING, H2 merges with only a WHEN NOT MATCHED branch
+    private String insertProfileSql() {
+        if (isPostgres()) {
+            return "INSERT INTO " + table + " (" + PROFILE_COLUMNS + ") VALUES (?, ?::jsonb, 0, 0, 0, 0, 0, ?, ?, ?, " +
+                    "nextval('" + versionSeed + "') * " + VERSION_SEED_STRIDE + ") " +
+                    "ON CONFLICT (player_id) DO NOTHING RETURNING " + PROFILE_COLUMNS;
+        }
+        return "SELECT " + PROFILE_COLUMNS + " FROM FINAL TABLE (MERGE INTO " + table + " AS p " +
+                "USING (VALUES (CAST(? AS UUID))) AS s(player_id) ON p.player_id = s.player_id " +
+                "WHEN NOT MATCHED THEN INSERT (" + PROFILE_COLUMNS + ") " +
+                "VALUES (s.player_id, ? FORMAT JSON, 0, 0, 0, 0, 0, ?, ?, ?, " +
+                "(NEXT VALUE FOR " + versionSeed + ") * " + VERSION_SEED_STRIDE + "))";
+    }
+
+    private List<Object> newProfileArgs(UUID playerId, Preferences preferences, int wallet) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return new ArrayList<>(List.of(playerId, preferenceCodec.writePreferences(preferences), wallet, now, now));
+    }
+
+    private PlayerProfile toProfile(ResultSet rs, int rowNum) throws SQLException {
+        PlayerProfile profile = new PlayerProfile(rs.getObject("player_id", UUID.class),
+                readPreferences(rs.getString("preferences")), rs.getInt("games_played"), rs.getInt("games_won"),
+                rs.getInt("leaderboard_position"), rs.getLong("time_played"), rs.getInt("wallet"),
+                rs.getTimestamp("created_at").toLocalDateTime(), rs.getTimestamp("updated_at").toLocalDateTime());
+        profile.setLeaderboardSequence(rs.getLong("leaderboard_sequence"));
+        profile.setVersion(rs.getLong("version"));
+        return profile;
+    }
+
+    private Optional<MergedPreferences> applyPreferencesPatch(UUID playerId, Preferences patch, Long expectedVersion) {
+        // only the keys being changed are sent, unset preferences are left out of the patch document
+        String delta = preferenceCodec.write(patch.toMap());
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String condition = expectedVersion != null ? " AND version = ?" : "";
+
+        if (isPostgres()) {
+            // jsonb || replaces the top level keys of the stored document with those of the patch
+            List<Object> args = new ArrayList<>(List.of(delta, now, playerId));
+            if (expectedVersion != null) {
+                args.add(expectedVersion);
+            }
+            List<MergedPreferences> result = jdbcTemplate.query("UPDATE " + table + " SET preferences = " +
+                            "COALESCE(preferences, '{}'::jsonb) || ?::jsonb, updated_at = ?, version = version + 1 " +
+                            "WHERE player_id = ?" + condition + " RETURNING preferences::text AS preferences, version",
+                    (rs, rowNum) -> new MergedPreferences(readPreferences(rs.getString("preferences")),
+                            rs.getLong("version")),
+                    args.toArray());
+            return result.stream().findFirst();
+        }
+
+        // H2 cannot edit a JSON document, so the merge happens here and the write is guarded by the version it read
+        for (int attempt = 0; attempt < MERGE_ATTEMPTS; attempt++) {
+            List<MergedPreferences> stored = jdbcTemplate.query(
+                    "SELECT preferences, version FROM " + table + " WHERE player_id = ?",
+                    (rs, rowNum) -> new MergedPreferences(readPreferences(rs.getString("preferences")),
+                            rs.getLong("version")),
+                    playerId);
+            if (stored.isEmpty()) {
+                return Optional.empty();
+            }
+            long version = stored.get(0).version();
+            if (expectedVersion != null && version != expectedVersion) {
+                return Optional.empty();
+            }
+            Preferences merged = stored.get(0).preferences().merge(patch.toMap());
+            int updated = jdbcTemplate.update("UPDATE " + table + " SET preferences = ? FORMAT JSON, updated_at = ?, " +
+                            "version = version + 1 WHERE player_id = ? AND version = ?",
+                    preferenceCodec.writePreferences(merged), now, playerId, version);
+            if (updated == 1) {
+                return Optional.of(new MergedPreferences(merged, version + 1));
+            }
+        }
+        throw new ConcurrencyFailureException("Preferences of player " + playerId + " kept changing while merging");
+    }
+
+    private Preferences readPreferences(String json) {
+        return json != null ? preferenceCodec.readPreferences(json) : Preferences.empty();
+    }
+
+    // The balance check is part of the WHERE clause, so concurrent debits can never overspend
+    private Optional<WalletBalance> updateWallet(String condition, UUID playerId, int changeAmount, Object... conditionArgs) {
+        String update = "UPDATE " + table + " SET wallet = wallet + ?, updated_at = ?, version = version + 1 " +
+                "WHERE player_id = ? AND wallet + ? >= 0" + condition;
+        String sql = isPostgres()
+                ? update + " RETURNING wallet, version"
+                : "SELECT wallet, version FROM FINAL TABLE (" + update + ")";
+
+        List<Object> args = new ArrayList<>(List.of(changeAmount, Timestamp.valueOf(LocalDateTime.now()), playerId,
+                changeAmount));
+        args.addAll(List.of(conditionArgs));
+        List<WalletBalance> result = jdbcTemplate.query(sql, WALLET_BALANCE_MAPPER, args.toArray());
+        return result.stream().findFirst();
+    }
+
+    // CSV for COPY, an unquoted empty field is NULL and quotes inside the preferences JSON are doubled
+    // One row in COPY's csv format, an empty field is NULL and a quoted one is a string
+    private static StringBuilder appendCsv(StringBuilder csv, ProfileRow row) {
+        csv.append(row.playerId()).append(',');
+        if (row.preferences() != null) {
+            csv.append('"').append(row.preferences().replace("\"", "\"\"")).append('"');
+        }
+        return csv.append(',').append(row.gamesPlayed())
+                .append(',').append(row.gamesWon())
+                .append(',').append(row.leaderboardPosition())
+                .append(',').append(row.leaderboardSequence())
+                .append(',').append(row.timePlayed())
+                .append(',').append(row.wallet())
+                .append(',').append(row.createdAt())
+                .append(',').append(row.updatedAt())
+                .append(',').append(row.version())
+                .append('\n');
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            result = "PostgreSQL".equalsIgnoreCase(product);
+            postgres = result;
+        }
+        return result;
+    }
+
+}
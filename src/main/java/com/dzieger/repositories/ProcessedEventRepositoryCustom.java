@@ -0,0 +1,17 @@
+package com.dzieger.repositories;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public interface ProcessedEventRepositoryCustom {
+
+    // Records the ids in one statement, skipping those already recorded, returns the ids this call inserted
+    Set<UUID> insertNew(Collection<UUID> eventIds, LocalDateTime processedAt);
+
+    // Streams the ids processed at or after since, without loading them all at once
+    void forEachProcessedSince(LocalDateTime since, Consumer<UUID> action);
+
+}
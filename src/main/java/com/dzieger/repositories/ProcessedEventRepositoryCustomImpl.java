@@ -0,0 +1,90 @@
+package com.dzieger.repositories;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+public class ProcessedEventRepositoryCustomImpl implements ProcessedEventRepositoryCustom {
+
+    // Ids per statement, H2 caps arrays at 65536 elements
+    private static final int CHUNK_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+
+    private volatile Boolean postgres;
+
+    public ProcessedEventRepositoryCustomImpl(JdbcTemplate jdbcTemplate,
+                                              @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = schema.isBlank() ? "processed_events" : schema + ".processed_events";
+    }
+
+    @Override
+    public Set<UUID> insertNew(Collection<UUID> eventIds, LocalDateTime processedAt) {
+        if (eventIds.isEmpty()) {
+            return Set.of();
+        }
+
+        // The primary key decides, so two consumers inserting the same id at once can't both get it back.
+        // Postgres skips existing ids with ON CONFLICT, H2 merges and reads the inserted rows from the FINAL TABLE
+        boolean postgres = isPostgres();
+        String sql = postgres
+                ? "INSERT INTO " + table + " (event_id, processed_at) SELECT event_id, ? FROM unnest(?) AS v(event_id) " +
+                        "ON CONFLICT (event_id) DO NOTHING RETURNING event_id"
+                : "SELECT event_id FROM FINAL TABLE (MERGE INTO " + table + " AS p " +
+                        "USING UNNEST(?) AS v(event_id) ON p.event_id = v.event_id " +
+                        "WHEN NOT MATCHED THEN INSERT (event_id, processed_at) VALUES (v.event_id, ?))";
+        Timestamp timestamp = Timestamp.valueOf(processedAt);
+
+        Set<UUID> inserted = new HashSet<>();
+        List<UUID> all = new ArrayList<>(eventIds);
+        for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+            UUID[] chunk = all.subList(from, Math.min(from + CHUNK_SIZE, all.size())).toArray(new UUID[0]);
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql);
+                statement.setTimestamp(postgres ? 1 : 2, timestamp);
+                statement.setArray(postgres ? 2 : 1, connection.createArrayOf("uuid", chunk));
+                return statement;
+            }, (RowCallbackHandler) rs -> inserted.add(rs.getObject("event_id", UUID.class)));
+        }
+        return inserted;
+    }
+
+    @Override
+    public void forEachProcessedSince(LocalDateTime since, Consumer<UUID> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT event_id FROM " + table + " WHERE processed_at >= ?");
+            statement.setTimestamp(1, Timestamp.valueOf(since));
+            statement.setFetchSize(10_000);
+            return statement;
+        }, (RowCallbackHandler) rs -> action.accept(rs.getObject("event_id", UUID.class)));
+    }
+
+    // Helper methods
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            result = "PostgreSQL".equalsIgnoreCase(product);
+            postgres = result;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.dzieger.services;
+
+import com.dzieger.codecs.PlayerEventCodec;
+import com.dzieger.eventPayloadDtos.LeaderboardStatsEvent;
+import com.dzieger.models.OutboxEvent;
+import com.dzieger.repositories.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+// Writes every win ratio to the outbox in the caller's transaction, so a ratio is sent exactly when its game
+// commits and survives a crash. Bursts of ratios for one player are coalesced by OutboxRelay, which sends only
+// the latest event per key of the topics in player.outbox.relay.coalesce-topics.
+@Component
+public class LeaderboardStatsEmitter {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final PlayerEventCodec playerEventCodec;
+    private final String topic;
+
+    public LeaderboardStatsEmitter(OutboxEventRepository outboxEventRepository, PlayerEventCodec playerEventCodec,
+                                   @Value("${player.kafka.leaderboard-stats.topic:leaderboard-stats}") String topic) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.playerEventCodec = playerEventCodec;
+        this.topic = topic;
+    }
+
+    public void emit(UUID playerId, double stats) {
+        outboxEventRepository.save(toOutboxEvent(playerId, stats));
+    }
+
+    // Helper methods
+
+    private OutboxEvent toOutboxEvent(UUID playerId, double stats) {
+        byte[] payload = playerEventCodec.encode(new LeaderboardStatsEvent(playerId, stats));
+        // Keyed by player so all of one player's stats land on the same partition, in the order they were written
+        return new OutboxEvent(topic, playerId.toString(), payload);
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.dzieger.services;
+
+import com.dzieger.metrics.PlayerMetrics;
+import com.dzieger.models.OutboxEvent;
+import com.dzieger.repositories.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Drains the outbox to Kafka in id order. A row is deleted only once the broker has acknowledged it,
+// so a message can be sent twice after a failure but is never lost.
+// For the topics in coalesce-topics each message replaces the previous one for its key, so only the newest event
+// per key in a batch is sent. The older ones are deleted together with it once it is acknowledged.
+@Component
+@ConditionalOnProperty(name = "player.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PlayerMetrics playerMetrics;
+    private final int batchSize;
+    private final long ackTimeoutMs;
+    private final Set<String> coalesceTopics;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, KafkaTemplate<String, byte[]> kafkaTemplate,
+                       TransactionTemplate transactionTemplate, PlayerMetrics playerMetrics,
+                       @Value("${player.outbox.relay.batch-size:500}") int batchSize,
+                       @Value("${player.outbox.relay.ack-timeout-ms:10000}") long ackTimeoutMs,
+                       @Value("${player.outbox.relay.coalesce-topics:}") String[] coalesceTopics) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.playerMetrics = playerMetrics;
+        this.batchSize = batchSize;
+        this.ackTimeoutMs = ackTimeoutMs;
+        this.coalesceTopics = Set.of(coalesceTopics);
+    }
+
+    @Scheduled(fixedDelayString = "${player.outbox.relay.interval-ms:200}")
+    public void relay() {
+        // keep going while full batches come back, then wait for the next tick
+        int relayed;
+        do {
+            relayed = relayBatch();
+        } while (relayed == batchSize);
+    }
+
+    // Sends one batch and deletes the acknowledged prefix of it, returns the number of events removed from the outbox
+    public int relayBatch() {
+        Integer relayed = transactionTemplate.execute(status -> {
+            List<OutboxEvent> batch = outboxEventRepository.findNextBatch(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            long start = System.nanoTime();
+            Map<Long, Long> sentAs = coalesce(batch);
+            List<OutboxEvent> sends = batch.stream().filter(event -> sentAs.get(event.getId()).equals(event.getId())).toList();
+            List<CompletableFuture<SendResult<String, byte[]>>> acks = new ArrayList<>(sends.size());
+            for (OutboxEvent event : sends) {
+                try {
+                    acks.add(playerMetrics.timeKafkaSend(event.getTopic(),
+                            () -> kafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload())));
+                } catch (Exception e) {
+                    log.warn("Failed to send outbox event {} for topic {}, will retry", event.getId(), event.getTopic(), e);
+                    break;
+                }
+            }
+
+            // Only the events before the first failure are removed, the rest are retried in order next time
+            Set<Long> acknowledgedSends = new HashSet<>();
+            for (int i = 0; i < acks.size(); i++) {
+                OutboxEvent event = sends.get(i);
+                if (!awaitAck(acks.get(i), start, event)) {
+                    break;
+                }
+                acknowledgedSends.add(event.getId());
+                playerMetrics.outboxEventRelayed(Duration.between(event.getCreatedAt(), LocalDateTime.now()));
+            }
+
+            // A superseded event goes with the one sent in its place, so an older value is never left behind a newer one
+            List<Long> acknowledged = new ArrayList<>(batch.size());
+            Map<String, Integer> superseded = new HashMap<>();
+            for (OutboxEvent event : batch) {
+                Long sentId = sentAs.get(event.getId());
+                if (acknowledgedSends.contains(sentId)) {
+                    acknowledged.add(event.getId());
+                    if (!sentId.equals(event.getId())) {
+                        superseded.merge(event.getTopic(), 1, Integer::sum);
+                    }
+                }
+            }
+            outboxEventRepository.deleteAllByIdInBatch(acknowledged);
+            superseded.forEach(playerMetrics::outboxEventsSuperseded);
+            playerMetrics.outboxBatchRelayed(System.nanoTime() - start, acknowledged.size() < batch.size());
+            return acknowledged.size();
+        });
+        return relayed == null ? 0 : relayed;
+    }
+
+    // Helper methods
+
+    // Maps the id of every event in the batch to the id of the event sent in its place: its own,
+    // or that of the newest event for its topic and key. The batch is in id order, so the last one wins
+    private Map<Long, Long> coalesce(List<OutboxEvent> batch) {
+        Map<List<String>, Long> newest = new HashMap<>();
+        for (OutboxEvent event : batch) {
+            if (isCoalesced(event)) {
+                newest.put(List.of(event.getTopic(), event.getMessageKey()), event.getId());
+            }
+        }
+        Map<Long, Long> sentAs = new HashMap<>();
+        for (OutboxEvent event : batch) {
+            sentAs.put(event.getId(), isCoalesced(event)
+                    ? newest.get(List.of(event.getTopic(), event.getMessageKey())) : event.getId());
+        }
+        return sentAs;
+    }
+
+    private boolean isCoalesced(OutboxEvent event) {
+        return event.getMessageKey() != null && coalesceTopics.contains(event.getTopic());
+    }
+
+    private boolean awaitAck(CompletableFuture<SendResult<String, byte[]>> ack, long start, OutboxEvent event) {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs) - (System.nanoTime() - start);
+        try {
+            ack.get(Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.warn("Outbox event {} for topic {} was not acknowledged, will retry", event.getId(), event.getTopic(), e);
+            return false;
+        }
+    }
+
+}
@@ -1,272 +1,419 @@
 package com.dzieger.services;
 
+import com.dzieger.SecurityConfig.CustomAuthenticationToken;
 import com.dzieger.SecurityConfig.JwtUtil;
+import com.dzieger.cache.ProfileCache;
+import com.dzieger.cache.ProfileInvalidationPublisher;
+import com.dzieger.cache.ProfileResponseCache;
+import com.dzieger.cache.ProfileSnapshot;
+import com.dzieger.dedup.ProcessedEventIndex;
 import com.dzieger.dtos.PreferencesDTO;
 import com.dzieger.dtos.ProfileDTO;
 import com.dzieger.dtos.WalletDTO;
 import com.dzieger.eventPayloadDtos.GameCompletedEvent;
 import com.dzieger.eventPayloadDtos.LeaderboardUpdatedEvent;
 import com.dzieger.exceptions.*;
+import com.dzieger.metrics.PlayerMetrics;
+import com.dzieger.models.GameStats;
+import com.dzieger.models.GameStatsDelta;
+import com.dzieger.models.LeaderboardPosition;
+import com.dzieger.models.MergedPreferences;
 import com.dzieger.models.PlayerProfile;
+import com.dzieger.models.Preferences;
+import com.dzieger.models.WalletBalance;
 import com.dzieger.repositories.PlayerProfileRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
 
+// Every public method is timed as player.profile.service, tagged with the method and the exception thrown (or none)
 @Service
+@Timed(value = "player.profile.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
 public class PlayerProfileService {
 
     private static final Logger log = LoggerFactory.getLogger(PlayerProfileService.class);
 
+    // Coins a new profile starts with
+    private static final int STARTING_WALLET = 150;
+
     private final PlayerProfileRepository playerProfileRepository;
     private final JwtUtil jwtUtil;
-    private final KafkaTemplate<String, String> kafkaTemplate;
-
-    private static final Set<Object> VALID_PREFERENCES = Set.of("notifications", "sounds", "music", "default_game", "num_of_players", "language");
-    private static final Set<Object> GAME_PREFERENCES = Set.of("default_game", "num_of_players", "language");
-
-    public PlayerProfileService(PlayerProfileRepository playerProfileRepository, JwtUtil jwtUtil, KafkaTemplate<String, String> kafkaTemplate) {
+    private final ProfileCache profileCache;
+    private final ProfileResponseCache profileResponseCache;
+    private final ProfileInvalidationPublisher profileInvalidationPublisher;
+    private final PlayerMetrics playerMetrics;
+    private final LeaderboardStatsEmitter leaderboardStatsEmitter;
+    private final ProcessedEventIndex processedEventIndex;
+
+    public PlayerProfileService(PlayerProfileRepository playerProfileRepository, JwtUtil jwtUtil,
+                                ProfileCache profileCache, ProfileResponseCache profileResponseCache,
+                                ProfileInvalidationPublisher profileInvalidationPublisher,
+                                PlayerMetrics playerMetrics, LeaderboardStatsEmitter leaderboardStatsEmitter,
+                                ProcessedEventIndex processedEventIndex) {
         this.playerProfileRepository = playerProfileRepository;
         this.jwtUtil = jwtUtil;
-        this.kafkaTemplate = kafkaTemplate;
+        this.profileCache = profileCache;
+        this.profileResponseCache = profileResponseCache;
+        this.profileInvalidationPublisher = profileInvalidationPublisher;
+        this.playerMetrics = playerMetrics;
+        this.leaderboardStatsEmitter = leaderboardStatsEmitter;
+        this.processedEventIndex = processedEventIndex;
     }
 
     public String createProfile(String token){
-        log.info("Creating profile for player with id: {}", jwtUtil.extractUserId(token.substring(7)));
-
-        UUID id = UUID.fromString(jwtUtil.extractUserId(token.substring(7)));
-
-        if(playerProfileRepository.findById(id).isPresent()) {
-            throw new ProfileAlreadyExistsException("Profile already exists");
-        }
+        UUID id = currentPlayerId(token);
+        log.info("Creating profile for player with id: {}", id);
 
-        PlayerProfile newProfile = new PlayerProfile();
-        newProfile.setPlayerId(id);
-        newProfile.setPreferences(setDefaultPreferences());
-        newProfile.setGamesPlayed(0);
-        newProfile.setGamesWon(0);
-        newProfile.setLeaderboardPosition(0);
-        newProfile.setTimePlayed(0);
-        newProfile.setWallet(150);
+        // a single insert that does nothing when the profile already exists
+        PlayerProfile newProfile = playerProfileRepository.insertProfile(id, Preferences.defaults(), STARTING_WALLET)
+                .orElseThrow(() -> new ProfileAlreadyExistsException("Profile already exists"));
 
-        playerProfileRepository.save(newProfile);
+        invalidateProfile(id, newProfile.getVersion());
         log.info("Profile created successfully for player with id: {}", id);
         return "Profile created successfully";
     }
 
-    // TODO: Create profile with default preferences if profile does not exist when accessing getProfile endpoint
     public ProfileDTO getProfile(String token) {
-        log.info("Getting profile for player");
-        // get player profile
-        UUID playerId = UUID.fromString(jwtUtil.extractUserId(token.substring(7)));
-        PlayerProfile playerProfile = playerProfileRepository.findById(playerId).orElseThrow(() ->
-                new ProfileNotFoundException("Profile not found"));
+        return getProfile(token, false);
+    }
 
-        ProfileDTO profileDTO = new ProfileDTO();
-        profileDTO.setPreferences(convertJsonToMappedPreferences(playerProfile.getPreferences()));
-        profileDTO.setGamesPlayed(playerProfile.getGamesPlayed());
-        profileDTO.setGamesWon(playerProfile.getGamesWon());
-        profileDTO.setLeaderboardPosition(playerProfile.getLeaderboardPosition());
-        profileDTO.setTimePlayed(playerProfile.getTimePlayed());
-        profileDTO.setWallet(playerProfile.getWallet());
+    // With createIfMissing a player without a profile gets one with default preferences instead of ProfileNotFound
+    public ProfileDTO getProfile(String token, boolean createIfMissing) {
+        log.debug("Getting profile for player");
+        // get player profile
+        ProfileDTO profileDTO = getProfileSnapshot(token, createIfMissing).toProfileDTO();
 
-        log.info("Profile: {}", profileDTO);
+        log.debug("Profile: {}", profileDTO);
 
         return profileDTO;
     }
 
+    // The cached copy of the caller's profile, its version is the one the body was read at
+    public ProfileSnapshot getProfileSnapshot(String token, boolean createIfMissing) {
+        UUID playerId = currentPlayerId(token);
+        return createIfMissing ? loadOrCreateProfile(playerId) : loadProfile(playerId);
+    }
+
     public String deleteProfile(UUID playerId) {
         log.info("Deleting profile for player with id: {}", playerId);
 
         // delete player profile
-        if (playerProfileRepository.findById(playerId).isEmpty()) {
-            throw new ProfileNotFoundException("Profile not found");
-        }
+        PlayerProfile profile = playerProfileRepository.findById(playerId).orElseThrow(() ->
+                new ProfileNotFoundException("Profile not found"));
         playerProfileRepository.deleteById(playerId);
+        // the deletion counts as one version past the last stored row
+        invalidateProfile(playerId, profile.getVersion() + 1);
         return "Player profile deleted successfully";
     }
 
     public PreferencesDTO getProfilePreferences(String token) {
-        log.info("Getting preferences for player");
+        log.debug("Getting preferences for player");
 
         // get player preferences
-        UUID playerId = UUID.fromString(jwtUtil.extractUserId(token.substring(7)));
+        UUID playerId = currentPlayerId(token);
 
-        PlayerProfile playerProfile = playerProfileRepository.findById(playerId).orElseThrow(() ->
-                new ProfileNotFoundException("Profile not found"));
-
-
-        return new PreferencesDTO(convertJsonToMappedPreferences(playerProfile.getPreferences()));
+        return new PreferencesDTO(loadProfile(playerId).preferences().toMap());
     }
 
     public PreferencesDTO updateProfilePreferences(String token, Map<String, Object> preferences) {
+        return updateProfilePreferences(token, preferences, null).value();
+    }
+
+    // A non-null expectedVersion makes the update conditional, it fails with PreconditionFailedException once the
+    // profile has moved past that version. Returns the merged preferences and the new version
+    public VersionedResult<PreferencesDTO> updateProfilePreferences(String token, Map<String, Object> preferences,
+                                                                    Long expectedVersion) {
 
         if (preferences == null || preferences.isEmpty()) {
             throw new InvalidPreferenceException("Preferences cannot be null");
         }
 
-        log.info("Updating preferences for player: {}", preferences);
+        log.debug("Updating preferences for player: {}", preferences);
 
-        // update player preferences
-        UUID playerId = UUID.fromString(jwtUtil.extractUserId(token.substring(7)));
-        PlayerProfile playerProfile = playerProfileRepository.findById(playerId).orElseThrow(() ->
-                new ProfileNotFoundException("Profile not found"));
-        playerProfile.setPreferences(updatePreferences(playerProfile, preferences));
-        playerProfileRepository.save(playerProfile);
+        // validated here, merged into the stored document by the database so only the patch is sent
+        Preferences patch = Preferences.empty().merge(preferences);
+        UUID playerId = currentPlayerId(token);
+        MergedPreferences merged = (expectedVersion == null
+                ? playerProfileRepository.mergePreferences(playerId, patch)
+                : playerProfileRepository.mergePreferences(playerId, patch, expectedVersion))
+                .orElseThrow(() -> preferencesUpdateRejected(playerId, expectedVersion));
+        invalidateProfile(playerId, merged.version());
 
-        return new PreferencesDTO(preferences);
+        return new VersionedResult<>(new PreferencesDTO(merged.preferences().toMap()), merged.version());
     }
 
+    @Transactional
     public void handleGameCompleted(GameCompletedEvent event) {
-        log.info("Handling game completion event");
+        log.debug("Handling game completion event");
 
-        // process game completion
-        PlayerProfile profile = playerProfileRepository.findById(event.getPlayerId()).orElseThrow(() ->
-                new ProfileNotFoundException("Profile not found"));
-        profile.setGamesPlayed(profile.getGamesPlayed() + 1);
-        if (event.isWon()) {
-            profile.setGamesWon(profile.getGamesWon() + 1);
+        if (event.getEventId() != null && processedEventIndex.claim(List.of(event.getEventId())).isEmpty()) {
+            log.debug("Dropping redelivered game completion event {}", event.getEventId());
+            return;
         }
-        playerProfileRepository.save(profile);
 
-        // produce stats for leaderboard service
-        double stats = (double) profile.getGamesWon() / profile.getGamesPlayed();
+        // process game completion, the counters are incremented in the database and the new totals returned
+        GameStats stats = playerProfileRepository.incrementGameStats(event.getPlayerId(), 1, event.isWon() ? 1 : 0)
+                .orElseThrow(() -> new ProfileNotFoundException("Profile not found"));
+        invalidateProfile(stats.playerId(), stats.version());
 
-        // produce stats for leaderboard service
-        String eventPayload = String.format("{\"playerId\": \"%s\", \"stats\": %f}", profile.getPlayerId(), stats);
+        // produce stats for leaderboard service once the new totals have committed
+        sendLeaderboardStats(stats.playerId(), stats.winRatio());
+    }
+
+    @Transactional
+    public void handleGameCompletedBatch(List<GameCompletedEvent> events) {
+        log.info("Handling batch of {} game completion events", events.size());
 
-        try {
-            kafkaTemplate.send("leaderboard-stats", eventPayload);
-        } catch (Exception e) {
-            log.error("Failed to send leaderboard stats to Kafka", e);
+        // fold every event for the same player into a single delta
+        Map<UUID, GameStatsDelta> deltas = new LinkedHashMap<>();
+        for (GameCompletedEvent event : dropProcessed(events)) {
+            if (event == null || event.getPlayerId() == null) {
+                log.warn("Skipping game completion event without a player id");
+                continue;
+            }
+            deltas.merge(event.getPlayerId(),
+                    new GameStatsDelta(event.getPlayerId(), 1, event.isWon() ? 1 : 0),
+                    (current, next) -> current.plus(next.gamesPlayed(), next.gamesWon()));
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        int[] updateCounts = playerProfileRepository.applyGameStatsDeltas(deltas.values());
+        int index = 0;
+        for (UUID playerId : deltas.keySet()) {
+            if (updateCounts[index++] == 0) {
+                log.warn("Profile not found for game completion event, player id: {}", playerId);
+            }
         }
 
+        // produce stats for leaderboard service
+        for (GameStats stats : playerProfileRepository.findGameStatsByPlayerIdIn(deltas.keySet())) {
+            invalidateProfile(stats.playerId(), stats.version());
+            sendLeaderboardStats(stats.playerId(), stats.winRatio());
+        }
     }
 
+    @Transactional
     public void handleLeaderboardUpdated(LeaderboardUpdatedEvent event) {
-        log.info("Handling leaderboard update event");
+        log.debug("Handling leaderboard update event");
 
-        // update leaderboard position with received position
-        PlayerProfile profile = playerProfileRepository.findById(event.getPlayerId()).orElseThrow(() ->
-                new ProfileNotFoundException("Profile not found"));
-        profile.setLeaderboardPosition(event.getNewLeaderboardPosition());
-        playerProfileRepository.save(profile);
+        // same sequence gate as the batch, a stale or unchanged position comes back without a version
+        playerProfileRepository.applyLeaderboardPositions(List.of(new LeaderboardPosition(event.getPlayerId(),
+                event.getNewLeaderboardPosition(), event.getSequence()))).forEach(this::invalidateProfile);
     }
 
-    public WalletDTO updateWallet(String token, WalletDTO wallet) {
-        // update wallet
-        PlayerProfile profile = playerProfileRepository.findById(UUID.fromString(jwtUtil.extractUserId(token.substring(7))))
-                .orElseThrow(() ->
-                new ProfileNotFoundException("Profile not found"));
+    @Transactional
+    public void handleLeaderboardUpdatedBatch(List<LeaderboardUpdatedEvent> events) {
+        log.info("Handling batch of {} leaderboard update events", events.size());
 
-        if (profile.getWallet() + wallet.getChangeAmount() < 0) {
-            throw new InsufficientFundsException("Insufficient funds");
+        // keep one position per player, the one with the highest sequence (the last one when sequences are equal)
+        Map<UUID, LeaderboardPosition> positions = new LinkedHashMap<>();
+        for (LeaderboardUpdatedEvent event : events) {
+            if (event == null || event.getPlayerId() == null) {
+                log.warn("Skipping leaderboard update event without a player id");
+                continue;
+            }
+            positions.merge(event.getPlayerId(),
+                    new LeaderboardPosition(event.getPlayerId(), event.getNewLeaderboardPosition(), event.getSequence()),
+                    (current, next) -> next.sequence() >= current.sequence() ? next : current);
+        }
+        if (positions.isEmpty()) {
+            return;
         }
 
-        profile.setWallet(profile.getWallet() + wallet.getChangeAmount());
+        // unchanged positions and stale sequences are skipped by the database and come back without a version
+        Map<UUID, Long> versions = playerProfileRepository.applyLeaderboardPositions(positions.values());
+        log.debug("Applied {} of {} leaderboard positions", versions.size(), positions.size());
+        versions.forEach(this::invalidateProfile);
+    }
+
+    public WalletDTO updateWallet(String token, WalletDTO wallet) {
+        return updateWallet(token, wallet, null).value();
+    }
 
-        playerProfileRepository.save(profile);
+    // A non-null expectedVersion makes the change conditional on the profile still being at that version.
+    // Returns the new balance and version
+    public VersionedResult<WalletDTO> updateWallet(String token, WalletDTO wallet, Long expectedVersion) {
+        // update wallet with a single conditional statement
+        UUID playerId = currentPlayerId(token);
+        Optional<WalletBalance> applied = expectedVersion == null
+                ? playerProfileRepository.applyWalletChange(playerId, wallet.getChangeAmount())
+                : playerProfileRepository.applyWalletChange(playerId, wallet.getChangeAmount(), expectedVersion);
+        WalletBalance balance = applied.orElseThrow(() -> walletChangeRejected(playerId, expectedVersion));
+        invalidateProfile(playerId, balance.version());
+        playerMetrics.walletChanged(wallet.getChangeAmount());
 
         WalletDTO updatedWallet = new WalletDTO();
-        updatedWallet.setBalance(profile.getWallet());
+        updatedWallet.setBalance(balance.balance());
         updatedWallet.setChangeAmount(wallet.getChangeAmount());
 
-        return updatedWallet;
+        return new VersionedResult<>(updatedWallet, balance.version());
+    }
+
+    // Id of the caller, the JWT filter has already authenticated the token
+    public UUID getPlayerId(String token) {
+        return currentPlayerId(token);
+    }
+
+    // Version of the caller's profile for ETags, from the cache or a version-only query, never the full row
+    public long getProfileVersion(String token) {
+        return getProfileVersion(token, false);
+    }
+
+    // With createIfMissing a cache miss loads (or creates) the whole profile into the cache instead, the body that
+    // follows is then served from it
+    public long getProfileVersion(String token, boolean createIfMissing) {
+        UUID playerId = currentPlayerId(token);
+        ProfileSnapshot cached = profileCache.getIfPresent(playerId);
+        if (cached != null) {
+            return cached.version();
+        }
+        if (createIfMissing) {
+            return loadOrCreateProfile(playerId).version();
+        }
+        return playerProfileRepository.findVersionByPlayerId(playerId).orElseThrow(() ->
+                new ProfileNotFoundException("Profile not found"));
     }
 
     public WalletDTO getWallet(String token) {
         // get wallet
-        PlayerProfile profile = playerProfileRepository.findById(UUID.fromString(jwtUtil.extractUserId(token.substring(7)))).orElseThrow(() ->
-                new ProfileNotFoundException("Profile not found"));
         WalletDTO wallet = new WalletDTO();
-        wallet.setBalance(profile.getWallet());
+        wallet.setBalance(loadProfile(currentPlayerId(token)).wallet());
         return wallet;
     }
 
 
     // Helper Methods
 
-    private String setDefaultPreferences() {
-        // set default preferences
-        Map<String, Object> preferences = new HashMap<>();
-        preferences.put("notifications", true);
-        preferences.put("sounds", true);
-        preferences.put("music", true);
-        preferences.put("default_game", "regular");
+    // Works out why a conditional wallet update touched no row
+    private RuntimeException walletChangeRejected(UUID playerId, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return playerProfileRepository.existsById(playerId)
+                    ? new InsufficientFundsException("Insufficient funds")
+                    : new ProfileNotFoundException("Profile not found");
+        }
+        Optional<Long> version = playerProfileRepository.findVersionByPlayerId(playerId);
+        if (version.isEmpty()) {
+            return new ProfileNotFoundException("Profile not found");
+        }
+        if (version.get() != expectedVersion.longValue()) {
+            return new PreconditionFailedException("Profile has been modified");
+        }
+        return new InsufficientFundsException("Insufficient funds");
+    }
 
-        return convertMappedPreferencesToJson(preferences);
+    // A preferences merge only misses when the profile is gone or, for a conditional one, has moved on
+    private RuntimeException preferencesUpdateRejected(UUID playerId, Long expectedVersion) {
+        if (expectedVersion != null && playerProfileRepository.findVersionByPlayerId(playerId).isPresent()) {
+            return new PreconditionFailedException("Profile has been modified");
+        }
+        return new ProfileNotFoundException("Profile not found");
     }
 
-    private boolean isValidPreference(String preference) {
-        // check if preference is valid
-        return VALID_PREFERENCES.contains(preference);
+    private void sendLeaderboardStats(UUID playerId, double stats) {
+        // written to the outbox with the game, the relay coalesces a burst of games into the latest ratio
+        leaderboardStatsEmitter.emit(playerId, stats);
     }
 
-    private String updatePreferences(PlayerProfile profile, Map<String, Object> preferences) {
-        // update preferences
-        String preferencesJson = profile.getPreferences();
-        if (preferencesJson == null || preferencesJson.isEmpty()) {
-            log.warn("Profile has no existing preferences. Initializing empty preferences.");
-            preferencesJson = "{}";
-        }
-        Map<String, Object> profilePreferences = convertJsonToMappedPreferences(preferencesJson);
-        log.info("Updating preferences: {}", preferences);
-        preferences.forEach((key, value) -> {
-            log.info("Updating preference: {} with value: {}", key, value);
-            if (isValidPreference(key)) {
-                profilePreferences.put(key, value);
-            } else {
-                throw new InvalidPreferenceException("Invalid preference: " + key);
+    // Drops events whose id was already processed, the ids of the rest are recorded in the caller's transaction
+    private List<GameCompletedEvent> dropProcessed(List<GameCompletedEvent> events) {
+        List<UUID> eventIds = new ArrayList<>(events.size());
+        for (GameCompletedEvent event : events) {
+            if (event != null && event.getEventId() != null) {
+                eventIds.add(event.getEventId());
             }
-        });
+        }
+        if (eventIds.isEmpty()) {
+            return events;
+        }
 
-        return convertMappedPreferencesToJson(profilePreferences);
+        Set<UUID> claimed = new HashSet<>(processedEventIndex.claim(eventIds));
+        List<GameCompletedEvent> fresh = new ArrayList<>(events.size());
+        for (GameCompletedEvent event : events) {
+            // events without an id can't be deduplicated and are applied as before,
+            // remove() keeps only the first of two copies in the same batch
+            if (event == null || event.getEventId() == null || claimed.remove(event.getEventId())) {
+                fresh.add(event);
+            }
+        }
+        if (fresh.size() < events.size()) {
+            log.info("Dropped {} redelivered game completion events", events.size() - fresh.size());
+        }
+        return fresh;
     }
 
-    private String convertMappedPreferencesToJson(Map<String, Object> preferences) {
-        log.info("Converting preferences to Json string");
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            return mapper.writeValueAsString(preferences);
-        } catch (JsonProcessingException e) {
-            throw new FailedConversionToJsonException("Unable to convert Map to Json string", e);
+    private UUID currentPlayerId(String token) {
+        // The JWT filter has already verified the token and stored the player id as the principal
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof CustomAuthenticationToken && authentication.getPrincipal() != null) {
+            return UUID.fromString((String) authentication.getPrincipal());
         }
+        return UUID.fromString(jwtUtil.extractUserId(token.substring(7)));
     }
 
-    private Map<String, Object> convertJsonToMappedPreferences(String preferences) {
-        try {
-            log.info("Converting Json string to Map: {}", preferences);
-            ObjectMapper mapper = new ObjectMapper();
-            return mapper.readValue(preferences, Map.class);
-        } catch (JsonProcessingException e) {
-            throw new FailedConversionToJsonException("Unable to convert Json string to Map", e);
+    private void invalidateProfile(UUID playerId, long version) {
+        // evict the local copy right away, the other nodes hear about the write once it has committed
+        profileCache.evict(playerId);
+        profileResponseCache.evict(playerId);
+        profileInvalidationPublisher.publish(playerId, version);
+    }
+
+    private ProfileSnapshot loadProfile(UUID playerId) {
+        // read through the profile cache, missing profiles are not cached
+        ProfileSnapshot snapshot = profileCache.get(playerId, id ->
+                playerProfileRepository.findById(id).map(ProfileSnapshot::of).orElse(null));
+        if (snapshot == null) {
+            throw new ProfileNotFoundException("Profile not found");
         }
+        return snapshot;
     }
 
-    public PreferencesDTO getProfileGamePreferences(String token) {
-        // get player game preferences
-        UUID playerId = UUID.fromString(jwtUtil.extractUserId(token.substring(7)));
-        PlayerProfile profile = playerProfileRepository.findById(playerId).orElseThrow(() ->
-                new ProfileNotFoundException("Profile not found"));
+    private ProfileSnapshot loadOrCreateProfile(UUID playerId) {
+        // one insert-or-select statement, nothing was cached for a missing profile so a new one needs no invalidation
+        ProfileSnapshot snapshot = profileCache.get(playerId, id -> playerProfileRepository
+                .findOrInsertProfile(id, Preferences.defaults(), STARTING_WALLET).map(ProfileSnapshot::of).orElse(null));
+        if (snapshot == null) {
+            throw new ProfileNotFoundException("Profile not found");
+        }
+        return snapshot;
+    }
 
-        Map<String, Object> gamePreferences = new HashMap<>();
-        Map<String, Object> preferences = convertJsonToMappedPreferences(profile.getPreferences());
+    // Looks up many profiles at once, cache misses are loaded with one IN query and unknown ids are reported as missing
+    public ProfileLookup lookupProfiles(Collection<UUID> playerIds) {
+        Set<UUID> requested = new LinkedHashSet<>(playerIds);
+        Map<UUID, ProfileSnapshot> snapshots = profileCache.getAll(requested, ids -> {
+            Map<UUID, ProfileSnapshot> loaded = new HashMap<>();
+            playerProfileRepository.findAllById(ids).forEach(profile ->
+                    loaded.put(profile.getPlayerId(), ProfileSnapshot.of(profile)));
+            return loaded;
+        });
 
-        preferences.forEach((key, value) -> {
-            if (GAME_PREFERENCES.contains(key)) {
-                gamePreferences.put(key, value);
+        Map<UUID, ProfileSnapshot> found = new LinkedHashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID playerId : requested) {
+            ProfileSnapshot snapshot = snapshots.get(playerId);
+            if (snapshot != null) {
+                found.put(playerId, snapshot);
+            } else {
+                missing.add(playerId);
             }
-        });
+        }
+        log.debug("Looked up {} profiles, {} missing", requested.size(), missing.size());
+        return new ProfileLookup(found, missing);
+    }
+
+    public PreferencesDTO getProfileGamePreferences(String token) {
+        // get player game preferences
+        UUID playerId = currentPlayerId(token);
 
-        return new PreferencesDTO(gamePreferences);
+        return new PreferencesDTO(loadProfile(playerId).preferences().gamePreferences().toMap());
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,5 @@
+package com.dzieger.services;
+
+// Outcome of a bulk import, rows that were older than the stored profile or repeated in the input are not written
+public record ProfileImportResult(long rowsRead, long rowsWritten, long elapsedMs, long rowsPerSecond) {
+}
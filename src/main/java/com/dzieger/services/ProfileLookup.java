@@ -0,0 +1,11 @@
+package com.dzieger.services;
+
+import com.dzieger.cache.ProfileSnapshot;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Result of a bulk lookup, found profiles in request order and the ids that have no profile
+public record ProfileLookup(Map<UUID, ProfileSnapshot> found, List<UUID> missing) {
+}
@@ -0,0 +1,232 @@
+package com.dzieger.services;
+
+import com.dzieger.cache.ProfileCache;
+import com.dzieger.cache.ProfileInvalidationPublisher;
+import com.dzieger.cache.ProfileResponseCache;
+import com.dzieger.codecs.PreferenceCodec;
+import com.dzieger.exceptions.InvalidImportException;
+import com.dzieger.exceptions.InvalidPreferenceException;
+import com.dzieger.models.Preferences;
+import com.dzieger.models.ProfileRow;
+import com.dzieger.repositories.PlayerProfileRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Moves player_profiles in and out in bulk as newline-delimited JSON, one ProfileRow per line.
+// Rows are written as they are read, so memory use does not depend on the size of the table.
+@Service
+public class ProfileTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProfileTransferService.class);
+
+    private static final TypeReference<Map<String, Object>> PREFERENCES_TYPE = new TypeReference<>() {};
+
+    private final PlayerProfileRepository playerProfileRepository;
+    private final PreferenceCodec preferenceCodec;
+    private final ProfileCache profileCache;
+    private final ProfileResponseCache profileResponseCache;
+    private final ProfileInvalidationPublisher profileInvalidationPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonFactory jsonFactory;
+    private final int exportFetchSize;
+    private final int importChunkSize;
+
+    public ProfileTransferService(PlayerProfileRepository playerProfileRepository, PreferenceCodec preferenceCodec,
+                                  ProfileCache profileCache, ProfileResponseCache profileResponseCache,
+                                  ProfileInvalidationPublisher profileInvalidationPublisher,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${player.profile.export.fetch-size:1000}") int exportFetchSize,
+                                  @Value("${player.profile.import.chunk-size:50000}") int importChunkSize) {
+        this.playerProfileRepository = playerProfileRepository;
+        this.preferenceCodec = preferenceCodec;
+        this.profileCache = profileCache;
+        this.profileResponseCache = profileResponseCache;
+        this.profileInvalidationPublisher = profileInvalidationPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jsonFactory = preferenceCodec.getObjectMapper().getFactory();
+        this.exportFetchSize = exportFetchSize;
+        this.importChunkSize = importChunkSize;
+    }
+
+    // Writes every profile updated in [updatedFrom, updatedTo) to out, either bound may be null.
+    // The read-only transaction lets Postgres stream the result through a cursor instead of loading all of it
+    @Transactional(readOnly = true)
+    public long exportProfiles(LocalDateTime updatedFrom, LocalDateTime updatedTo, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        long[] exported = {0};
+        try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null);
+            playerProfileRepository.forEachProfile(updatedFrom, updatedTo, exportFetchSize, row -> {
+                try {
+                    writeRow(json, row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                exported[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        long elapsedMs = elapsedMs(started);
+        log.info("Exported {} profiles in {} ms ({} rows/s)", exported[0], elapsedMs, exported[0] * 1000 / elapsedMs);
+        return exported[0];
+    }
+
+    // Reads profiles in the export format and upserts them chunk by chunk, each chunk in its own transaction.
+    // A stored profile is only overwritten by a row with a later updatedAt, so an import can be re-run safely
+    public ProfileImportResult importProfiles(InputStream in) throws IOException {
+        long started = System.nanoTime();
+        long read = 0;
+        long written = 0;
+        List<ProfileRow> chunk = new ArrayList<>(importChunkSize);
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            while (parser.nextToken() != null) {
+                read++;
+                chunk.add(readRow(parser, read));
+                if (chunk.size() == importChunkSize) {
+                    written += writeChunk(chunk);
+                    chunk.clear();
+                    log.info("Imported {} profiles, {} rows/s", read, read * 1000 / elapsedMs(started));
+                }
+            }
+            if (!chunk.isEmpty()) {
+                written += writeChunk(chunk);
+            }
+        } catch (JsonProcessingException e) {
+            throw new InvalidImportException("Malformed profile after row " + read + ": " + e.getOriginalMessage(), e);
+        } finally {
+            // the rows were written around the cache, this node drops everything right away and the other nodes
+            // evict the written profiles as their invalidations arrive
+            profileCache.evictAll();
+            profileResponseCache.evictAll();
+        }
+
+        long elapsedMs = elapsedMs(started);
+        log.info("Import finished, {} profiles read, {} written in {} ms", read, written, elapsedMs);
+        return new ProfileImportResult(read, written, elapsedMs, read * 1000 / elapsedMs);
+    }
+
+    // Helper Methods
+
+    private long writeChunk(List<ProfileRow> chunk) {
+        Integer written = transactionTemplate.execute(status -> {
+            Map<UUID, Long> versions = playerProfileRepository.upsertProfiles(chunk);
+            // sent once the chunk has committed
+            versions.forEach(profileInvalidationPublisher::publish);
+            return versions.size();
+        });
+        return written != null ? written : 0;
+    }
+
+    private ProfileRow readRow(JsonParser parser, long rowNumber) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new InvalidImportException("Row " + rowNumber + " is not a JSON object");
+        }
+        UUID playerId = null;
+        String preferences = null;
+        int gamesPlayed = 0;
+        int gamesWon = 0;
+        int leaderboardPosition = 0;
+        long leaderboardSequence = 0;
+        long timePlayed = 0;
+        int wallet = 150;
+        LocalDateTime createdAt = null;
+        LocalDateTime updatedAt = null;
+        long version = 0;
+        try {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "playerId" -> playerId = UUID.fromString(parser.getText());
+                    case "preferences" -> preferences = value == JsonToken.VALUE_NULL
+                            ? null : readPreferences(parser, rowNumber);
+                    case "gamesPlayed" -> gamesPlayed = parser.getIntValue();
+                    case "gamesWon" -> gamesWon = parser.getIntValue();
+                    case "leaderboardPosition" -> leaderboardPosition = parser.getIntValue();
+                    case "leaderboardSequence" -> leaderboardSequence = parser.getLongValue();
+                    case "timePlayed" -> timePlayed = parser.getLongValue();
+                    case "wallet" -> wallet = parser.getIntValue();
+                    case "createdAt" -> createdAt = LocalDateTime.parse(parser.getText());
+                    case "updatedAt" -> updatedAt = LocalDateTime.parse(parser.getText());
+                    case "version" -> version = parser.getLongValue();
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidImportException("Invalid value in row " + rowNumber + ": " + e.getMessage(), e);
+        }
+        if (playerId == null) {
+            throw new InvalidImportException("Row " + rowNumber + " has no playerId");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return new ProfileRow(playerId, preferences, gamesPlayed, gamesWon, leaderboardPosition, leaderboardSequence,
+                timePlayed, wallet, createdAt != null ? createdAt : now, updatedAt != null ? updatedAt : now, version);
+    }
+
+    // Imported preferences go through the same validation as a PATCH, so no row can store keys or types reads reject
+    private String readPreferences(JsonParser parser, long rowNumber) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new InvalidImportException("Preferences in row " + rowNumber + " are not a JSON object");
+        }
+        Map<String, Object> values = parser.readValueAs(PREFERENCES_TYPE);
+        try {
+            return preferenceCodec.writePreferences(Preferences.empty().merge(values));
+        } catch (InvalidPreferenceException e) {
+            throw new InvalidImportException("Invalid preferences in row " + rowNumber + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static long elapsedMs(long started) {
+        return Math.max(1, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void writeRow(JsonGenerator json, ProfileRow row) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("playerId", row.playerId().toString());
+        // stored preferences are already JSON, copied as is instead of being parsed and written again
+        json.writeFieldName("preferences");
+        if (row.preferences() != null) {
+            json.writeRawValue(row.preferences());
+        } else {
+            json.writeNull();
+        }
+        json.writeNumberField("gamesPlayed", row.gamesPlayed());
+        json.writeNumberField("gamesWon", row.gamesWon());
+        json.writeNumberField("leaderboardPosition", row.leaderboardPosition());
+        json.writeNumberField("leaderboardSequence", row.leaderboardSequence());
+        json.writeNumberField("timePlayed", row.timePlayed());
+        json.writeNumberField("wallet", row.wallet());
+        json.writeStringField("createdAt", row.createdAt().toString());
+        json.writeStringField("updatedAt", row.updatedAt().toString());
+        json.writeNumberField("version", row.version());
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+}
@@ -0,0 +1,5 @@
+package com.dzieger.services;
+
+// Result of a profile write together with the version it left the row at, sent back as the new ETag
+public record VersionedResult<T>(T value, long version) {
+}
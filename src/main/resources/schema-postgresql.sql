@@ -0,0 +1,25 @@
+DO $$
+BEGIN
+    -- Preferences used to be stored as a JSON string in a varchar column, convert it to jsonb once
+    IF EXISTS (SELECT 1
+               FROM information_schema.columns
+               WHERE table_schema = 'catan_player'
+                 AND table_name = 'player_profiles'
+                 AND column_name = 'preferences'
+                 AND data_type <> 'jsonb') THEN
+        ALTER TABLE catan_player.player_profiles
+            ALTER COLUMN preferences TYPE jsonb USING preferences::jsonb;
+    END IF;
+
+    -- Outbox payloads were JSON text before events were binary encoded, keep pending rows as their UTF-8 bytes
+    IF EXISTS (SELECT 1
+               FROM information_schema.columns
+               WHERE table_schema = 'catan_player'
+                 AND table_name = 'outbox_events'
+                 AND column_name = 'payload'
+                 AND data_type <> 'bytea') THEN
+        ALTER TABLE catan_player.outbox_events
+            ALTER COLUMN payload TYPE bytea USING convert_to(payload, 'UTF8');
+    END IF;
+END
+$$;
@@ -1 +1,3 @@
-CREATE SCHEMA IF NOT EXISTS catan_player;
\ No newline at end of file
+CREATE SCHEMA IF NOT EXISTS catan_player;
+-- Seeds the version of every new profile, see PlayerProfileRepositoryCustomImpl.insertProfileSql
+CREATE SEQUENCE IF NOT EXISTS catan_player.profile_version_seed;
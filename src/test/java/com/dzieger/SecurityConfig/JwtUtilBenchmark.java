@@ -0,0 +1,108 @@
+package com.dzieger.SecurityConfig;
+
+import com.dzieger.models.enums.Role;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.security.Key;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-call parserBuilder path JwtUtil used to take with the pre-built parser
+ * and the verified-claims cache. Run with {@code main} from the IDE or through the JMH runner
+ * on the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final String JWT_SECRET = "thisisaverysecretcodethatshouldnotbeshared";
+    private static final String JWT_ISSUER = "testIssuer";
+
+    private Key key;
+    private JwtParser prebuiltParser;
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setup() {
+        MockEnvironment env = new MockEnvironment();
+        env.setActiveProfiles("test");
+        jwtUtil = new JwtUtil(env);
+        jwtUtil.init();
+
+        key = Keys.hmacShaKeyFor(JWT_SECRET.getBytes());
+        prebuiltParser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .requireIssuer(JWT_ISSUER)
+                .setAllowedClockSkewSeconds(1)
+                .build();
+        token = jwtUtil.generateToken(UUID.randomUUID().toString(), "benchmarkUser", List.of(Role.PLAYER));
+    }
+
+    @Benchmark
+    public String extractUserId_parserBuilderPerCall() {
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody()
+                .getSubject();
+    }
+
+    @Benchmark
+    public String extractUserId_prebuiltParser() {
+        return prebuiltParser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String extractUserId_jwtUtil() {
+        return jwtUtil.extractUserId(token);
+    }
+
+    @Benchmark
+    public boolean validate_parserBuilderPerCall() {
+        // Previous validate(): one skew-aware parse plus two more parses for the issuer check
+        Jwts.parserBuilder()
+                .setSigningKey(key)
+                .setAllowedClockSkewSeconds(1)
+                .build()
+                .parseClaimsJws(token);
+        Claims first = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        if (!JWT_ISSUER.equals(first.getIssuer())) {
+            return false;
+        }
+        Claims second = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        return JWT_ISSUER.equals(second.getIssuer());
+    }
+
+    @Benchmark
+    public Claims validate_prebuiltParser() {
+        return prebuiltParser.parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public boolean validate_jwtUtil() {
+        return jwtUtil.validate(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtUtilBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
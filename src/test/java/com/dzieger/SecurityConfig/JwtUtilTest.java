@@ -6,6 +6,8 @@ import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -26,7 +28,10 @@ import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
@@ -82,6 +87,11 @@ public class JwtUtilTest {
         doAnswer(invocation -> null).when(filterChain).doFilter(request, response);
     }
 
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
     // Helper method to generate a token
     public String generateToken() {
         return Jwts.builder()
@@ -153,4 +163,30 @@ public class JwtUtilTest {
         SecurityContext context = SecurityContextHolder.getContext();
         assertNull(context.getAuthentication());
     }
+
+    @Test
+    void testExtractAllClaims_ReturnsCachedClaimsForSameToken() {
+        String token = generateToken();
+
+        Claims first = jwtUtil.extractAllClaims(token);
+        Claims second = jwtUtil.extractAllClaims(token);
+
+        assertSame(first, second);
+        assertEquals("testUsername", second.get("username", String.class));
+    }
+
+    @Test
+    void testValidate_RejectsTokenFromAnotherIssuer() {
+        String token = Jwts.builder()
+                .setSubject(UUID.randomUUID().toString())
+                .claim("authorities", List.of(Role.PLAYER.name()))
+                .setIssuer("someOtherIssuer")
+                .setIssuedAt(new Date(System.currentTimeMillis()))
+                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
+                .signWith(secretKey)
+                .compact();
+
+        assertFalse(jwtUtil.validate(token));
+        assertTrue(jwtUtil.validate(generateToken()));
+    }
 }
@@ -0,0 +1,100 @@
+package com.dzieger.cache;
+
+import com.dzieger.controllers.ApiResponse;
+import com.dzieger.controllers.SerializedResponseConverter;
+import com.dzieger.models.PlayerProfile;
+import com.dzieger.models.Preferences;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing the GET /v1/profile body for a cached profile snapshot: {@code jackson} builds the ProfileDTO and
+ * ApiResponse and runs them through the Jackson converter as the controller used to, {@code cached} and
+ * {@code cachedGzip} look the serialized response up in ProfileResponseCache and copy its bytes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProfileResponseBenchmark {
+
+    private MappingJackson2HttpMessageConverter jacksonConverter;
+    private SerializedResponseConverter serializedConverter;
+    private ProfileResponseCache responseCache;
+    private ProfileSnapshot snapshot;
+    private UUID playerId;
+
+    @Setup
+    public void setup() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        jacksonConverter = new MappingJackson2HttpMessageConverter(objectMapper);
+        serializedConverter = new SerializedResponseConverter();
+        responseCache = new ProfileResponseCache(true, 1 << 20, Duration.ofHours(1), true, objectMapper);
+
+        playerId = UUID.randomUUID();
+        PlayerProfile profile = new PlayerProfile();
+        profile.setPlayerId(playerId);
+        profile.setPreferences(Preferences.defaults());
+        profile.setGamesPlayed(120);
+        profile.setGamesWon(37);
+        profile.setLeaderboardPosition(1450);
+        profile.setTimePlayed(432_000);
+        profile.setWallet(980);
+        profile.setVersion(12);
+        snapshot = ProfileSnapshot.of(profile);
+    }
+
+    @Benchmark
+    public int jackson() throws IOException {
+        MockHttpOutputMessage out = new MockHttpOutputMessage();
+        jacksonConverter.write(new ApiResponse<>(true, "Profile retrieved successfully", snapshot.toProfileDTO()),
+                MediaType.APPLICATION_JSON, out);
+        return out.getBodyAsBytes().length;
+    }
+
+    @Benchmark
+    public int cached() throws IOException {
+        return write(false);
+    }
+
+    @Benchmark
+    public int cachedGzip() throws IOException {
+        return write(true);
+    }
+
+    // Helper methods
+
+    private int write(boolean gzip) throws IOException {
+        SerializedResponse response = responseCache.get(playerId, snapshot.version(), () -> snapshot,
+                cached -> new ApiResponse<>(true, "Profile retrieved successfully", cached.toProfileDTO()));
+        MockHttpOutputMessage out = new MockHttpOutputMessage();
+        if (gzip) {
+            out.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        serializedConverter.write(response, MediaType.APPLICATION_JSON, out);
+        return out.getBodyAsBytes().length;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProfileResponseBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.dzieger.cache;
+
+import com.dzieger.models.Preferences;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProfileResponseCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testGet_ShouldSerializeOncePerVersion() {
+        ProfileResponseCache cache = new ProfileResponseCache(true, 1 << 20, Duration.ofMinutes(1), false, objectMapper);
+        UUID playerId = UUID.randomUUID();
+        AtomicInteger serialized = new AtomicInteger();
+
+        SerializedResponse first = cache.get(playerId, 1, () -> snapshot(playerId, 1, 100), body(serialized));
+        SerializedResponse second = cache.get(playerId, 1, () -> snapshot(playerId, 1, 200), body(serialized));
+        SerializedResponse newer = cache.get(playerId, 2, () -> snapshot(playerId, 2, 300), body(serialized));
+
+        assertSame(first, second);
+        assertEquals("{\"wallet\":100}", new String(first.json()));
+        assertEquals("{\"wallet\":300}", new String(newer.json()));
+        assertEquals(2, serialized.get());
+    }
+
+    @Test
+    void testGzip_ShouldOnlyBeKeptWhenSmaller() throws IOException {
+        ProfileResponseCache cache = new ProfileResponseCache(true, 1 << 20, Duration.ofMinutes(1), true, objectMapper);
+
+        SerializedResponse small = cache.get(UUID.randomUUID(), 1, () -> snapshot(UUID.randomUUID(), 1, 1),
+                snapshot -> Map.of("wallet", 1));
+        SerializedResponse large = cache.get(UUID.randomUUID(), 1, () -> snapshot(UUID.randomUUID(), 1, 1),
+                snapshot -> Map.of("theme", "dark".repeat(200)));
+
+        assertNull(small.gzip());
+        assertTrue(large.gzip().length < large.json().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(large.gzip()))) {
+            assertArrayEquals(large.json(), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testMaximumBytes_ShouldBoundTheTotalSizeOfTheEntries() {
+        ProfileResponseCache cache = new ProfileResponseCache(true, 64 * 1024, Duration.ofMinutes(1), false, objectMapper);
+        for (int i = 0; i < 100; i++) {
+            cache.get(UUID.randomUUID(), 1, () -> snapshot(UUID.randomUUID(), 1, 1),
+                    snapshot -> Map.of("theme", "x".repeat(4096)));
+        }
+        cache.getNativeCache().cleanUp();
+
+        long bytes = cache.getNativeCache().asMap().values().stream().mapToLong(SerializedResponse::sizeInBytes).sum();
+        assertTrue(bytes <= 64 * 1024);
+        assertTrue(cache.getNativeCache().estimatedSize() < 100);
+    }
+
+    @Test
+    void testEvictIfOlder_ShouldKeepNewerEntries() {
+        ProfileResponseCache cache = new ProfileResponseCache(true, 1 << 20, Duration.ofMinutes(1), false, objectMapper);
+        UUID playerId = UUID.randomUUID();
+        cache.get(playerId, 5, () -> snapshot(playerId, 5, 1), snapshot -> Map.of("wallet", 1));
+
+        cache.evictIfOlder(playerId, 5);
+        assertNotNull(cache.getNativeCache().getIfPresent(playerId));
+
+        cache.evictIfOlder(playerId, 6);
+        assertNull(cache.getNativeCache().getIfPresent(playerId));
+    }
+
+    @Test
+    void testGet_WhenTheSnapshotIsOlderThanTheVersionAskedFor_ShouldCacheItUnderItsOwnVersion() {
+        ProfileResponseCache cache = new ProfileResponseCache(true, 1 << 20, Duration.ofMinutes(1), false, objectMapper);
+        UUID playerId = UUID.randomUUID();
+        AtomicInteger serialized = new AtomicInteger();
+
+        // the version was read after a write, the snapshot by a load that started before it
+        SerializedResponse raced = cache.get(playerId, 6, () -> snapshot(playerId, 5, 100), body(serialized));
+        assertEquals(5, raced.version());
+        assertEquals("{\"wallet\":100}", new String(raced.json()));
+        assertEquals(5, cache.getNativeCache().getIfPresent(playerId).version());
+
+        // the next request for version 6 does not take the old body for it
+        SerializedResponse current = cache.get(playerId, 6, () -> snapshot(playerId, 6, 200), body(serialized));
+        assertEquals(6, current.version());
+        assertEquals("{\"wallet\":200}", new String(current.json()));
+        assertEquals(2, serialized.get());
+    }
+
+    // Helper methods
+
+    private static Function<ProfileSnapshot, Object> body(AtomicInteger serialized) {
+        return snapshot -> {
+            serialized.incrementAndGet();
+            return Map.of("wallet", snapshot.wallet());
+        };
+    }
+
+    private static ProfileSnapshot snapshot(UUID playerId, long version, int wallet) {
+        return new ProfileSnapshot(playerId, version, 0, 0, 0, 0, wallet, Preferences.empty());
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.dzieger.codecs;
+
+import com.dzieger.eventPayloadDtos.LeaderboardStatsEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode throughput of the leaderboard-stats payload: the String.format JSON that
+ * PlayerProfileService used to build, JSON through the shared ObjectMapper, and the binary PlayerEventCodec.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerEventCodecBenchmark {
+
+    private PlayerEventCodec binaryCodec;
+    private PlayerEventCodec jsonCodec;
+    private ObjectMapper objectMapper;
+    private UUID playerId;
+    private double stats;
+    private LeaderboardStatsEvent event;
+    private byte[] formattedPayload;
+    private byte[] binaryPayload;
+
+    @Setup
+    public void setup() {
+        PreferenceCodec preferenceCodec = new PreferenceCodec();
+        binaryCodec = new PlayerEventCodec(preferenceCodec, "binary");
+        jsonCodec = new PlayerEventCodec(preferenceCodec, "json");
+        objectMapper = preferenceCodec.getObjectMapper();
+        playerId = UUID.randomUUID();
+        stats = 7.0 / 12;
+        event = new LeaderboardStatsEvent(playerId, stats);
+        formattedPayload = encode_stringFormat();
+        binaryPayload = binaryCodec.encode(event);
+    }
+
+    @Benchmark
+    public byte[] encode_stringFormat() {
+        // the String is encoded to bytes by the StringSerializer before it is sent
+        return String.format("{\"playerId\": \"%s\", \"stats\": %f}", playerId, stats).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encode_json() {
+        return jsonCodec.encode(event);
+    }
+
+    @Benchmark
+    public byte[] encode_binary() {
+        return binaryCodec.encode(event);
+    }
+
+    @Benchmark
+    public double decode_stringFormatJson() throws IOException {
+        // what a consumer of the old payload has to do
+        JsonNode node = objectMapper.readTree(formattedPayload);
+        UUID.fromString(node.get("playerId").asText());
+        return node.get("stats").asDouble();
+    }
+
+    @Benchmark
+    public LeaderboardStatsEvent decode_json() {
+        return binaryCodec.decode(formattedPayload, LeaderboardStatsEvent.class);
+    }
+
+    @Benchmark
+    public LeaderboardStatsEvent decode_binary() {
+        return binaryCodec.decode(binaryPayload, LeaderboardStatsEvent.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PlayerEventCodecBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.dzieger.codecs;
+
+import com.dzieger.eventPayloadDtos.GameCompletedEvent;
+import com.dzieger.eventPayloadDtos.LeaderboardStatsEvent;
+import com.dzieger.eventPayloadDtos.LeaderboardUpdatedEvent;
+import com.dzieger.eventPayloadDtos.PreferencesUpdatedEvent;
+import com.dzieger.exceptions.InvalidEventPayloadException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerEventCodecTest {
+
+    private static final UUID PLAYER_ID = UUID.randomUUID();
+
+    private final PlayerEventCodec playerEventCodec = new PlayerEventCodec(new PreferenceCodec(), "binary");
+
+    @Test
+    void testLeaderboardStats_ShouldRoundTripInFixedSize() {
+        byte[] encoded = playerEventCodec.encode(new LeaderboardStatsEvent(PLAYER_ID, 0.625));
+
+        // header, two longs for the UUID and a double
+        assertEquals(3 + 16 + 8, encoded.length);
+        assertEquals(PlayerEventCodec.MAGIC_BYTE, encoded[0]);
+
+        LeaderboardStatsEvent decoded = playerEventCodec.decode(encoded, LeaderboardStatsEvent.class);
+        assertEquals(PLAYER_ID, decoded.getPlayerId());
+        assertEquals(0.625, decoded.getStats());
+    }
+
+    @Test
+    void testGameCompletedAndLeaderboardUpdated_ShouldRoundTrip() {
+        GameCompletedEvent completed = playerEventCodec.decode(
+                playerEventCodec.encode(new GameCompletedEvent(PLAYER_ID, true)), GameCompletedEvent.class);
+        LeaderboardUpdatedEvent updated = playerEventCodec.decode(
+                playerEventCodec.encode(new LeaderboardUpdatedEvent(PLAYER_ID, 42, 1234567890123L)), LeaderboardUpdatedEvent.class);
+
+        assertEquals(PLAYER_ID, completed.getPlayerId());
+        assertTrue(completed.isWon());
+        assertNull(completed.getEventId());
+        assertEquals(PLAYER_ID, updated.getPlayerId());
+        assertEquals(42, updated.getNewLeaderboardPosition());
+        assertEquals(1234567890123L, updated.getSequence());
+    }
+
+    @Test
+    void testGameCompletedWithEventId_ShouldRoundTrip() {
+        UUID eventId = UUID.randomUUID();
+
+        byte[] encoded = playerEventCodec.encode(new GameCompletedEvent(PLAYER_ID, true, eventId));
+        GameCompletedEvent decoded = playerEventCodec.decode(encoded, GameCompletedEvent.class);
+
+        assertEquals(3 + 16 + 1 + 16, encoded.length);
+        assertEquals(PLAYER_ID, decoded.getPlayerId());
+        assertTrue(decoded.isWon());
+        assertEquals(eventId, decoded.getEventId());
+    }
+
+    @Test
+    void testLeaderboardUpdatedV1_ShouldDecodeWithoutSequence() {
+        ByteBuffer buffer = ByteBuffer.allocate(3 + 16 + 4);
+        buffer.put(PlayerEventCodec.MAGIC_BYTE).putShort(PlayerEventCodec.LEADERBOARD_UPDATED_V1);
+        buffer.putLong(PLAYER_ID.getMostSignificantBits()).putLong(PLAYER_ID.getLeastSignificantBits());
+        buffer.putInt(7);
+
+        LeaderboardUpdatedEvent decoded = playerEventCodec.decode(buffer.array(), LeaderboardUpdatedEvent.class);
+
+        assertEquals(PLAYER_ID, decoded.getPlayerId());
+        assertEquals(7, decoded.getNewLeaderboardPosition());
+        assertEquals(0, decoded.getSequence());
+    }
+
+    @Test
+    void testPreferencesUpdated_ShouldRoundTripEveryValueType() {
+        Map<String, Object> preferences = new LinkedHashMap<>();
+        preferences.put("notifications", true);
+        preferences.put("num_of_players", 4);
+        preferences.put("time_played", 123456789012L);
+        preferences.put("volume", 0.75);
+        preferences.put("language", "Español");
+        preferences.put("default_game", null);
+        for (int i = 0; i < 20; i++) {
+            preferences.put("custom_" + i, "value_" + i);
+        }
+
+        PreferencesUpdatedEvent decoded = playerEventCodec.decode(
+                playerEventCodec.encode(new PreferencesUpdatedEvent(PLAYER_ID, preferences)), PreferencesUpdatedEvent.class);
+
+        assertEquals(PLAYER_ID, decoded.getPlayerId());
+        assertEquals(preferences, decoded.getNewPreferences());
+    }
+
+    @Test
+    void testDecode_ShouldReadFromBufferPositionWithoutCopying() {
+        byte[] encoded = playerEventCodec.encode(new GameCompletedEvent(PLAYER_ID, false));
+        ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 5);
+        buffer.position(5);
+        buffer.put(encoded);
+        buffer.position(5);
+
+        GameCompletedEvent decoded = playerEventCodec.decode(buffer.slice(), GameCompletedEvent.class);
+
+        assertEquals(PLAYER_ID, decoded.getPlayerId());
+        assertFalse(decoded.isWon());
+    }
+
+    @Test
+    void testDecode_WithJsonPayload_ShouldFallBackToJson() {
+        byte[] json = ("{\"playerId\": \"" + PLAYER_ID + "\", \"won\": true}").getBytes(StandardCharsets.UTF_8);
+
+        GameCompletedEvent decoded = playerEventCodec.decode(json, GameCompletedEvent.class);
+
+        assertEquals(PLAYER_ID, decoded.getPlayerId());
+        assertTrue(decoded.isWon());
+    }
+
+    @Test
+    void testEncode_WithJsonFormat_ShouldWriteJson() {
+        PlayerEventCodec jsonCodec = new PlayerEventCodec(new PreferenceCodec(), "json");
+
+        byte[] encoded = jsonCodec.encode(new LeaderboardStatsEvent(PLAYER_ID, 0.5));
+
+        assertEquals('{', encoded[0]);
+        assertEquals(0.5, playerEventCodec.decode(encoded, LeaderboardStatsEvent.class).getStats());
+    }
+
+    @Test
+    void testDecode_WithUnknownSchemaOrWrongType_ShouldThrowError() {
+        byte[] unknownSchema = {PlayerEventCodec.MAGIC_BYTE, 0x7f, 0x7f};
+        byte[] gameCompleted = playerEventCodec.encode(new GameCompletedEvent(PLAYER_ID, true));
+        byte[] truncated = {PlayerEventCodec.MAGIC_BYTE, 0, 4, 1, 2};
+
+        assertThrows(InvalidEventPayloadException.class, () -> playerEventCodec.decode(unknownSchema, GameCompletedEvent.class));
+        assertThrows(InvalidEventPayloadException.class, () -> playerEventCodec.decode(gameCompleted, LeaderboardStatsEvent.class));
+        assertThrows(InvalidEventPayloadException.class, () -> playerEventCodec.decode(truncated, LeaderboardStatsEvent.class));
+    }
+
+}
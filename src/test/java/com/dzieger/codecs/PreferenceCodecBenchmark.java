@@ -0,0 +1,74 @@
+package com.dzieger.codecs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a new ObjectMapper per conversion, as PlayerProfileService used to do, with the shared
+ * PreferenceCodec. {@code main} runs with the GC profiler so gc.alloc.rate.norm shows bytes per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreferenceCodecBenchmark {
+
+    private PreferenceCodec preferenceCodec;
+    private Map<String, Object> preferences;
+    private String preferencesJson;
+
+    @Setup
+    public void setup() {
+        preferenceCodec = new PreferenceCodec();
+
+        // Typical document: the defaults written on profile creation plus the game preferences
+        preferences = new LinkedHashMap<>();
+        preferences.put("notifications", true);
+        preferences.put("sounds", true);
+        preferences.put("music", false);
+        preferences.put("default_game", "regular");
+        preferences.put("num_of_players", 4);
+        preferences.put("language", "en");
+        preferencesJson = preferenceCodec.write(preferences);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> read_newObjectMapperPerCall() throws JsonProcessingException {
+        return new ObjectMapper().readValue(preferencesJson, Map.class);
+    }
+
+    @Benchmark
+    public Map<String, Object> read_preferenceCodec() {
+        return preferenceCodec.read(preferencesJson);
+    }
+
+    @Benchmark
+    public String write_newObjectMapperPerCall() throws JsonProcessingException {
+        return new ObjectMapper().writeValueAsString(preferences);
+    }
+
+    @Benchmark
+    public String write_preferenceCodec() {
+        return preferenceCodec.write(preferences);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PreferenceCodecBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.dzieger.codecs;
+
+import com.dzieger.exceptions.FailedConversionToJsonException;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreferenceCodecTest {
+
+    private final PreferenceCodec preferenceCodec = new PreferenceCodec();
+
+    @Test
+    void testRoundTrip_ShouldPreserveValues() {
+        Map<String, Object> preferences = new LinkedHashMap<>();
+        preferences.put("notifications", true);
+        preferences.put("default_game", "regular");
+        preferences.put("num_of_players", 4);
+
+        Map<String, Object> result = preferenceCodec.read(preferenceCodec.write(preferences));
+
+        assertEquals(preferences, result);
+    }
+
+    @Test
+    void testRead_ShouldReturnMutableMap() {
+        Map<String, Object> result = preferenceCodec.read("{\"sounds\": true}");
+
+        result.put("music", false);
+
+        assertEquals(false, result.get("music"));
+    }
+
+    @Test
+    void testRead_WithInvalidJson_ShouldThrowError() {
+        assertThrows(FailedConversionToJsonException.class, () -> preferenceCodec.read("{not json"));
+    }
+
+}
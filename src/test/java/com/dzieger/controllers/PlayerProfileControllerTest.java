@@ -1,11 +1,19 @@
 package com.dzieger.controllers;
 
 import com.dzieger.SecurityConfig.JwtUtil;
+import com.dzieger.cache.ProfileResponseCache;
+import com.dzieger.cache.SerializedResponse;
 import com.dzieger.dtos.*;
+import com.dzieger.eventPayloadDtos.GameCompletedEvent;
+import com.dzieger.eventPayloadDtos.LeaderboardUpdatedEvent;
 import com.dzieger.exceptions.GlobalExceptionHandler;
+import com.dzieger.exceptions.InvalidEventPayloadException;
 import com.dzieger.exceptions.ProfileAlreadyExistsException;
 import com.dzieger.exceptions.ProfileNotFoundException;
 import com.dzieger.services.PlayerProfileService;
+import com.dzieger.services.ProfileTransferService;
+import com.dzieger.services.VersionedResult;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -13,18 +21,27 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.context.MessageSource;
 import org.springframework.http.MediaType;
+import org.springframework.kafka.listener.BatchListenerFailedException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -39,6 +56,12 @@ class PlayerProfileControllerTest {
     @Mock
     private PlayerProfileService playerProfileService;
 
+    @Mock
+    private ProfileTransferService profileTransferService;
+
+    @Mock
+    private ProfileResponseCache profileResponseCache;
+
     @InjectMocks
     private PlayerProfileController playerProfileController;
 
@@ -105,7 +128,7 @@ class PlayerProfileControllerTest {
         profileDTO.setLeaderboardPosition(0);
         profileDTO.setGamesWon(2);
         profileDTO.setGamesPlayed(10);
-        when(playerProfileService.getProfile(anyString())).thenReturn(profileDTO);
+        when(playerProfileService.getProfile(anyString(), eq(false))).thenReturn(profileDTO);
 
         mockMvc.perform(get("/api/v1/player/v1/profile")
                         .header("Authorization", "Bearer valid-token"))
@@ -117,6 +140,22 @@ class PlayerProfileControllerTest {
                 .andDo(print());
     }
 
+    @Test
+    void testGetProfile_ShouldSendTheETagOfTheCachedBody_WhenItIsOlderThanTheVersionRead() throws Exception {
+        UUID playerId = UUID.randomUUID();
+        when(profileResponseCache.isEnabled()).thenReturn(true);
+        when(playerProfileService.getPlayerId(anyString())).thenReturn(playerId);
+        // the version was read after a write that the body did not see yet
+        when(playerProfileService.getProfileVersion(anyString(), eq(false))).thenReturn(5L);
+        when(profileResponseCache.get(eq(playerId), eq(5L), any(), any()))
+                .thenReturn(new SerializedResponse(4, "{}".getBytes(), null));
+
+        mockMvc.perform(get("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer valid-token"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+    }
+
     @Test
     void testDeleteProfile_ShouldReturnSuccess() throws Exception {
         UUID playerId = UUID.randomUUID();
@@ -183,7 +222,8 @@ class PlayerProfileControllerTest {
     @Test
     void testUpdatePreferences_ShouldReturnUpdatedPreferences() throws Exception {
         PreferencesDTO updatedPreferences = new PreferencesDTO(Map.of("notifications", false));
-        when(playerProfileService.updateProfilePreferences(anyString(), any(Map.class))).thenReturn(updatedPreferences);
+        when(playerProfileService.updateProfilePreferences(anyString(), any(Map.class), isNull()))
+                .thenReturn(new VersionedResult<>(updatedPreferences, 1));
 
         mockMvc.perform(patch("/api/v1/player/v1/profile/preferences")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -209,7 +249,7 @@ class PlayerProfileControllerTest {
 
     @Test
     void testUpdatePreferences_shouldReturnNoContent_whenNoProfileFound() throws Exception {
-        when(playerProfileService.updateProfilePreferences(anyString(), any(Map.class))).thenThrow(new ProfileNotFoundException("Profile not found"));
+        when(playerProfileService.updateProfilePreferences(anyString(), any(Map.class), isNull())).thenThrow(new ProfileNotFoundException("Profile not found"));
 
         mockMvc.perform(patch("/api/v1/player/v1/profile/preferences")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -224,7 +264,8 @@ class PlayerProfileControllerTest {
     @Test
     void testUpdateWallet_ShouldReturnUpdatedWallet() throws Exception {
         WalletDTO updatedWallet = new WalletDTO(200, 50);
-        when(playerProfileService.updateWallet(anyString(), any(WalletDTO.class))).thenReturn(updatedWallet);
+        when(playerProfileService.updateWallet(anyString(), any(WalletDTO.class), isNull()))
+                .thenReturn(new VersionedResult<>(updatedWallet, 1));
 
         mockMvc.perform(patch("/api/v1/player/v1/profile/wallet")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -249,4 +290,37 @@ class PlayerProfileControllerTest {
                 .andExpect(jsonPath("$.data.balance").value(150))
                 .andDo(print());
     }
+
+    @Test
+    void testHandleGameCompleted_ShouldApplyTheEventsBeforeAnUndecodableRecord_AndNameItsIndex() {
+        GameCompletedEvent first = new GameCompletedEvent(UUID.randomUUID(), true);
+        GameCompletedEvent second = new GameCompletedEvent(UUID.randomUUID(), false);
+        List<ConsumerRecord<String, GameCompletedEvent>> records = List.of(
+                new ConsumerRecord<>("game-completed", 0, 10, "key", first),
+                new ConsumerRecord<>("game-completed", 0, 11, "key", second),
+                new ConsumerRecord<>("game-completed", 0, 12, "key", null),
+                new ConsumerRecord<>("game-completed", 0, 13, "key", first));
+
+        BatchListenerFailedException e = assertThrows(BatchListenerFailedException.class,
+                () -> playerProfileController.handleGameCompleted(records));
+
+        assertEquals(2, e.getIndex());
+        assertInstanceOf(InvalidEventPayloadException.class, e.getCause());
+        verify(playerProfileService).handleGameCompletedBatch(List.of(first, second));
+        verifyNoMoreInteractions(playerProfileService);
+    }
+
+    @Test
+    void testHandleLeaderboardUpdated_ShouldNotCallTheServiceWhenTheFirstRecordIsUndecodable() {
+        List<ConsumerRecord<String, LeaderboardUpdatedEvent>> records = List.of(
+                new ConsumerRecord<>("leaderboard-updated", 0, 0, "key", null),
+                new ConsumerRecord<>("leaderboard-updated", 0, 1, "key",
+                        new LeaderboardUpdatedEvent(UUID.randomUUID(), 3, 1)));
+
+        BatchListenerFailedException e = assertThrows(BatchListenerFailedException.class,
+                () -> playerProfileController.handleLeaderboardUpdated(records));
+
+        assertEquals(0, e.getIndex());
+        verifyNoInteractions(playerProfileService);
+    }
 }
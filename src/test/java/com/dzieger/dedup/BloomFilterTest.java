@@ -0,0 +1,83 @@
+package com.dzieger.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void testSizing_ShouldFollowExpectedInsertionsAndProbability() {
+        BloomFilter filter = new BloomFilter(1_000_000, 0.01);
+
+        // about 9.6 bits and 7 hash functions per id for 1%
+        assertTrue(filter.bitCount() >= 9_585_058 && filter.bitCount() < 9_585_058 + 64);
+        assertEquals(7, filter.hashCount());
+    }
+
+    @Test
+    void testMightContain_ShouldNeverMissAnInsertedId() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            filter.put(id);
+        }
+
+        ids.forEach(id -> assertTrue(filter.mightContain(id)));
+    }
+
+    @Test
+    void testMightContain_ShouldStayNearTheFalsePositiveProbability() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positive rate was " + falsePositives / 100_000.0);
+    }
+
+    @Test
+    void testPut_FromManyThreads_ShouldKeepEveryId() throws Exception {
+        BloomFilter filter = new BloomFilter(40_000, 0.01);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<UUID>>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            results.add(executor.submit(() -> {
+                List<UUID> ids = new ArrayList<>();
+                for (int i = 0; i < 10_000; i++) {
+                    UUID id = UUID.randomUUID();
+                    filter.put(id);
+                    ids.add(id);
+                }
+                return ids;
+            }));
+        }
+        for (Future<List<UUID>> result : results) {
+            result.get(10, TimeUnit.SECONDS).forEach(id -> assertTrue(filter.mightContain(id)));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void testConstructor_WithInvalidArguments_ShouldThrowError() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.0));
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.dzieger.integrations;
+
+import com.dzieger.SecurityConfig.JwtUtil;
+import com.dzieger.dtos.WalletDTO;
+import com.dzieger.exceptions.ProfileNotFoundException;
+import com.dzieger.models.enums.Role;
+import com.dzieger.services.PlayerProfileService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs on real ports, actuator is served on the management port and not on the application one
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability
+@ActiveProfiles("test")
+public class MetricsIntegrationTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private PlayerProfileService playerProfileService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Test
+    void testPrometheusEndpoint_exposesServiceTimersByOutcome() throws Exception {
+        String token = "Bearer " + jwtUtil.generateToken(UUID.randomUUID().toString(), "testUser", List.of(Role.PLAYER));
+        assertThrows(ProfileNotFoundException.class, () -> playerProfileService.updateWallet(token, new WalletDTO(0, 5)));
+
+        ResponseEntity<String> scrape = restTemplate.getForEntity(managementUrl("/actuator/prometheus"), String.class);
+        assertEquals(HttpStatus.OK, scrape.getStatusCode());
+        assertThat(scrape.getBody(), containsString(
+                "player_profile_service_seconds_count{class=\"com.dzieger.services.PlayerProfileService\","
+                        + "exception=\"ProfileNotFoundException\",method=\"updateWallet\""));
+        assertThat(scrape.getBody(), containsString("player_wallet_changes_total{type=\"credit\"}"));
+    }
+
+    @Test
+    void testPrometheusEndpoint_isNotOpenOnTheApplicationPort() {
+        ResponseEntity<String> scrape = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        assertTrue(scrape.getStatusCode().is4xxClientError());
+        assertEquals(HttpStatus.OK, restTemplate.getForEntity(managementUrl("/actuator/health"), String.class).getStatusCode());
+    }
+
+    // Helper methods
+    private String managementUrl(String path) {
+        return "http://localhost:" + managementPort + path;
+    }
+
+}
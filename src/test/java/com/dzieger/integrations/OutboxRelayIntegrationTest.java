@@ -0,0 +1,166 @@
+package com.dzieger.integrations;
+
+import com.dzieger.codecs.PlayerEventCodec;
+import com.dzieger.eventPayloadDtos.GameCompletedEvent;
+import com.dzieger.eventPayloadDtos.LeaderboardStatsEvent;
+import com.dzieger.models.OutboxEvent;
+import com.dzieger.repositories.OutboxEventRepository;
+import com.dzieger.repositories.PlayerProfileRepository;
+import com.dzieger.services.OutboxRelay;
+import com.dzieger.services.PlayerProfileService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+// The scheduled relay is left running, the tests wait for it to drain the outbox
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "player.outbox.relay.enabled=true",
+        "player.outbox.relay.interval-ms=50",
+        "player.outbox.relay.batch-size=20"
+})
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 1, topics = {"leaderboard-stats"})
+@DirtiesContext
+public class OutboxRelayIntegrationTest {
+
+    private static final String TOPIC = "leaderboard-stats";
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private PlayerProfileService playerProfileService;
+
+    @Autowired
+    private PlayerProfileRepository playerProfileRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlayerEventCodec playerEventCodec;
+
+    private Consumer<String, byte[]> consumer;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("outbox-test-" + UUID.randomUUID(), "false", embeddedKafka);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        consumer = new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new ByteArrayDeserializer()).createConsumer();
+        embeddedKafka.consumeFromAnEmbeddedTopic(consumer, TOPIC);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.close();
+    }
+
+    @Test
+    void testHandleGameCompleted_statsAreRelayedFromOutbox() {
+        UUID playerId = TestProfiles.create(playerProfileRepository);
+
+        playerProfileService.handleGameCompleted(new GameCompletedEvent(playerId, true));
+
+        // keyed by player, so the record can be picked out without decoding
+        List<ConsumerRecord<String, byte[]>> records = poll(1, record -> playerId.toString().equals(record.key()));
+        LeaderboardStatsEvent stats = playerEventCodec.decode(records.get(0).value(), LeaderboardStatsEvent.class);
+        assertEquals(playerId, stats.getPlayerId());
+        assertEquals(1.0, stats.getStats());
+        await().atMost(Duration.ofSeconds(10)).until(() -> outboxEventRepository.count() == 0);
+        assertTrue(meterRegistry.get("player.outbox.relayed").counter().count() >= 1);
+        assertTrue(meterRegistry.get("player.kafka.ack").tag("topic", TOPIC).tag("outcome", "success").timer().count() >= 1);
+    }
+
+    @Test
+    void testRelay_sendsEventsInOutboxOrderAcrossBatches() {
+        List<OutboxEvent> events = new ArrayList<>();
+        for (int i = 0; i < 75; i++) {
+            events.add(new OutboxEvent(TOPIC, null, ("event-" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        outboxEventRepository.saveAll(events);
+
+        List<ConsumerRecord<String, byte[]>> records = poll(75,
+                record -> new String(record.value(), StandardCharsets.UTF_8).startsWith("event-"));
+        for (int i = 0; i < 75; i++) {
+            assertEquals("event-" + i, new String(records.get(i).value(), StandardCharsets.UTF_8));
+        }
+        await().atMost(Duration.ofSeconds(10)).until(() -> outboxEventRepository.count() == 0);
+        assertEquals(0, outboxRelay.relayBatch());
+    }
+
+    @Test
+    void testRelay_sendsOnlyTheNewestEventPerKeyOfACoalescedTopic() {
+        String key = UUID.randomUUID().toString();
+        String otherKey = UUID.randomUUID().toString();
+        // saved in one transaction, so the relay sees all of them in the same batch
+        outboxEventRepository.saveAll(List.of(
+                new OutboxEvent(TOPIC, key, (key + "-1").getBytes(StandardCharsets.UTF_8)),
+                new OutboxEvent(TOPIC, otherKey, (otherKey + "-1").getBytes(StandardCharsets.UTF_8)),
+                new OutboxEvent(TOPIC, key, (key + "-2").getBytes(StandardCharsets.UTF_8)),
+                new OutboxEvent(TOPIC, key, (key + "-3").getBytes(StandardCharsets.UTF_8))));
+
+        List<ConsumerRecord<String, byte[]>> records = poll(2,
+                record -> key.equals(record.key()) || otherKey.equals(record.key()));
+        assertEquals(otherKey + "-1", new String(records.get(0).value(), StandardCharsets.UTF_8));
+        assertEquals(key + "-3", new String(records.get(1).value(), StandardCharsets.UTF_8));
+        await().atMost(Duration.ofSeconds(10)).until(() -> outboxEventRepository.count() == 0);
+        assertTrue(meterRegistry.get("player.outbox.superseded").tag("topic", TOPIC).counter().count() >= 2);
+    }
+
+    @Test
+    void testHandleGameCompleted_whenProfileDoesNotExist_writesNoOutboxEvent() {
+        assertThrows(RuntimeException.class,
+                () -> playerProfileService.handleGameCompleted(new GameCompletedEvent(UUID.randomUUID(), false)));
+
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    // Helper methods
+    // Collects the records on the topic that belong to the calling test
+    private List<ConsumerRecord<String, byte[]>> poll(int expected, Predicate<ConsumerRecord<String, byte[]>> belongsToTest) {
+        List<ConsumerRecord<String, byte[]>> records = new ArrayList<>();
+        await().atMost(Duration.ofSeconds(15)).until(() -> {
+            for (ConsumerRecord<String, byte[]> record : KafkaTestUtils.getRecords(consumer, Duration.ofMillis(200))) {
+                if (belongsToTest.test(record)) {
+                    records.add(record);
+                }
+            }
+            return records.size() >= expected;
+        });
+        assertEquals(expected, records.size());
+        return records;
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.dzieger.integrations;
+
+import com.dzieger.codecs.PlayerEventCodec;
+import com.dzieger.codecs.PreferenceCodec;
+import com.dzieger.eventPayloadDtos.GameCompletedEvent;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// Reads records through the consumer factory the game-completed listener is configured with
+@SpringBootTest(properties = "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}")
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 1, topics = {PlayerEventConsumerIntegrationTest.TOPIC})
+@DirtiesContext
+public class PlayerEventConsumerIntegrationTest {
+
+    static final String TOPIC = "game-completed-consumer-test";
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private ConcurrentKafkaListenerContainerFactory<String, GameCompletedEvent> gameCompletedListenerContainerFactory;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @MockitoSpyBean
+    private PlayerEventCodec playerEventCodec;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGameCompletedConsumer_decodesFromTheFetchBuffer_andReportsBadPayloadsInTheHeaders() {
+        UUID playerId = UUID.randomUUID();
+        UUID eventId = UUID.randomUUID();
+        byte[] binary = new PlayerEventCodec(new PreferenceCodec(), "binary")
+                .encode(new GameCompletedEvent(playerId, true, eventId));
+
+        ConsumerFactory<String, GameCompletedEvent> consumerFactory =
+                (ConsumerFactory<String, GameCompletedEvent>) gameCompletedListenerContainerFactory.getConsumerFactory();
+        try (Consumer<String, GameCompletedEvent> consumer =
+                     consumerFactory.createConsumer("consumer-test-" + UUID.randomUUID(), null)) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, TOPIC);
+            kafkaTemplate.send(TOPIC, playerId.toString(), binary);
+            kafkaTemplate.send(TOPIC, playerId.toString(), "not an event".getBytes(StandardCharsets.UTF_8));
+
+            List<ConsumerRecord<String, GameCompletedEvent>> records = new ArrayList<>();
+            await().atMost(Duration.ofSeconds(15)).until(() -> {
+                ConsumerRecords<String, GameCompletedEvent> polled = KafkaTestUtils.getRecords(consumer, Duration.ofMillis(200));
+                polled.forEach(records::add);
+                return records.size() >= 2;
+            });
+
+            GameCompletedEvent event = records.get(0).value();
+            assertEquals(playerId, event.getPlayerId());
+            assertTrue(event.isWon());
+            assertEquals(eventId, event.getEventId());
+            assertNull(records.get(1).value());
+            assertNotNull(records.get(1).headers().lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER));
+        }
+
+        // both payloads were decoded straight from the consumer's buffer, never copied into an array first
+        verify(playerEventCodec, times(2)).decode(any(ByteBuffer.class), eq(GameCompletedEvent.class));
+        verify(playerEventCodec, never()).decode(any(byte[].class), eq(GameCompletedEvent.class));
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.dzieger.integrations;
+
+import com.dzieger.codecs.PlayerEventCodec;
+import com.dzieger.codecs.PreferenceCodec;
+import com.dzieger.eventPayloadDtos.GameCompletedEvent;
+import com.dzieger.models.PlayerProfile;
+import com.dzieger.repositories.PlayerProfileRepository;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "player.kafka.listeners.auto-startup=true",
+        "player.kafka.game-completed.topic=" + PlayerEventDeadLetterIntegrationTest.TOPIC,
+        "player.kafka.game-completed.linger-ms=10",
+        "player.kafka.game-completed.fetch-min-bytes=1"
+})
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 1, topics = {PlayerEventDeadLetterIntegrationTest.TOPIC,
+        PlayerEventDeadLetterIntegrationTest.TOPIC + "-dlt", "leaderboard-updated"})
+@DirtiesContext
+public class PlayerEventDeadLetterIntegrationTest {
+
+    static final String TOPIC = "game-completed-dlt-test";
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Autowired
+    private PlayerProfileRepository playerProfileRepository;
+
+    @Test
+    void testGameCompletedListener_deadLettersAnUndecodableRecord_andAppliesTheOthersOnce() {
+        UUID before = TestProfiles.create(playerProfileRepository);
+        UUID after = TestProfiles.create(playerProfileRepository);
+        PlayerEventCodec codec = new PlayerEventCodec(new PreferenceCodec(), "binary");
+        byte[] poison = "not an event".getBytes(StandardCharsets.UTF_8);
+
+        // one partition, so the poison record sits between the other two in every poll
+        kafkaTemplate.send(TOPIC, before.toString(), codec.encode(new GameCompletedEvent(before, true)));
+        kafkaTemplate.send(TOPIC, "poison", poison);
+        kafkaTemplate.send(TOPIC, after.toString(), codec.encode(new GameCompletedEvent(after, false)));
+
+        await().atMost(Duration.ofSeconds(30))
+                .until(() -> playerProfileRepository.findById(after).orElseThrow().getGamesPlayed() == 1);
+
+        // the event before the poison record is not applied again when the rest of the poll is redelivered
+        PlayerProfile first = playerProfileRepository.findById(before).orElseThrow();
+        assertEquals(1, first.getGamesPlayed());
+        assertEquals(1, first.getGamesWon());
+
+        Map<String, Object> props = KafkaTestUtils.consumerProps("dlt-test-" + UUID.randomUUID(), "false", embeddedKafka);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        try (Consumer<String, byte[]> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new ByteArrayDeserializer()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, TOPIC + "-dlt");
+            ConsumerRecord<String, byte[]> deadLetter = KafkaTestUtils.getSingleRecord(consumer, TOPIC + "-dlt",
+                    Duration.ofSeconds(15));
+
+            assertEquals("poison", deadLetter.key());
+            assertArrayEquals(poison, deadLetter.value());
+            assertEquals(TOPIC, new String(deadLetter.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC).value(),
+                    StandardCharsets.UTF_8));
+            assertNotNull(deadLetter.headers().lastHeader(KafkaHeaders.DLT_EXCEPTION_FQCN));
+        }
+    }
+
+}
@@ -1,13 +1,15 @@
 package com.dzieger.integrations;
 
 import com.dzieger.SecurityConfig.JwtUtil;
-import com.dzieger.exceptions.FailedConversionToJsonException;
+import com.dzieger.cache.ProfileResponseCache;
+import com.dzieger.dtos.ProfileLookupDTO;
 import com.dzieger.exceptions.InsufficientFundsException;
 import com.dzieger.exceptions.ProfileAlreadyExistsException;
 import com.dzieger.models.PlayerProfile;
+import com.dzieger.models.Preferences;
 import com.dzieger.models.enums.Role;
 import com.dzieger.repositories.PlayerProfileRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -17,18 +19,33 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -49,6 +66,14 @@ public class PlayerProfileIntegrationTest {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProfileResponseCache profileResponseCache;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     @BeforeAll
     public void setup() {
         playerProfileRepository.deleteAll();
@@ -85,7 +110,7 @@ public class PlayerProfileIntegrationTest {
         Optional<PlayerProfile> profile = playerProfileRepository.findById(playerId);
         assertTrue(profile.isPresent());
         assertEquals(playerId, profile.get().getPlayerId());
-        assertFalse(profile.get().getPreferences().isEmpty());
+        assertEquals(Preferences.defaults(), profile.get().getPreferences());
         assertEquals(150, profile.get().getWallet());
         assertEquals(0, profile.get().getGamesPlayed());
         assertEquals(0, profile.get().getGamesWon());
@@ -105,7 +130,7 @@ public class PlayerProfileIntegrationTest {
         // Manually create and save the profile
         PlayerProfile existingProfile = new PlayerProfile();
         existingProfile.setPlayerId(playerId);
-        existingProfile.setPreferences("{}"); // Default empty preferences
+        existingProfile.setPreferences(Preferences.empty()); // Default empty preferences
         existingProfile.setWallet(150);
         existingProfile.setGamesPlayed(0);
         existingProfile.setGamesWon(0);
@@ -133,7 +158,7 @@ public class PlayerProfileIntegrationTest {
         // Create the profile
         PlayerProfile profile = new PlayerProfile();
         profile.setPlayerId(playerId);
-        profile.setPreferences("{}"); // Default empty preferences
+        profile.setPreferences(Preferences.empty()); // Default empty preferences
         profile.setWallet(150); // Set default wallet for completeness
         profile.setGamesPlayed(0);
         profile.setGamesWon(0);
@@ -144,6 +169,34 @@ public class PlayerProfileIntegrationTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void testGetProfile_createsProfileOnFirstRead_whenCreateIsRequested() throws Exception {
+        UUID playerId = UUID.randomUUID();
+        String token = jwtUtil.generateToken(playerId.toString(), "testUser", List.of(Role.PLAYER));
+
+        // without the flag a missing profile is still answered with no content
+        mockMvc.perform(get("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isNoContent());
+        assertTrue(playerProfileRepository.findById(playerId).isEmpty());
+
+        List<String> etags = new ArrayList<>();
+        for (int read = 0; read < 2; read++) {
+            etags.add(mockMvc.perform(get("/api/v1/player/v1/profile")
+                            .param("create", "true")
+                            .header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.data.wallet").value(150))
+                    .andExpect(jsonPath("$.data.preferences.default_game").value("regular"))
+                    .andReturn().getResponse().getHeader("ETag"));
+        }
+
+        PlayerProfile profile = playerProfileRepository.findById(playerId).orElseThrow();
+        assertEquals(Preferences.defaults(), profile.getPreferences());
+        assertEquals(List.of("\"" + profile.getVersion() + "\"", "\"" + profile.getVersion() + "\""), etags);
+        assertEquals(1, playerProfileRepository.count());
+    }
+
     @Test
     void testGetPreferences_returnsPreferencesDTO() throws Exception{
         UUID playerId = UUID.randomUUID();
@@ -182,7 +235,7 @@ public class PlayerProfileIntegrationTest {
         // Create the profile
         PlayerProfile profile = new PlayerProfile();
         profile.setPlayerId(playerId);
-        profile.setPreferences("{}"); // Default empty preferences
+        profile.setPreferences(Preferences.empty()); // Default empty preferences
         profile.setWallet(150); // Set default wallet for completeness
         profile.setGamesPlayed(0);
         profile.setGamesWon(0);
@@ -206,9 +259,9 @@ public class PlayerProfileIntegrationTest {
         Optional<PlayerProfile> updatedProfile = playerProfileRepository.findById(playerId);
         assertTrue(updatedProfile.isPresent());
 
-        Map<String, Object> updatedPreferences = convertJsonToMappedPreferences(updatedProfile.get().getPreferences());
-        assertEquals("regular", updatedPreferences.get("default_game"));
-        assertEquals(false, updatedPreferences.get("sounds"));
+        Preferences updatedPreferences = updatedProfile.get().getPreferences();
+        assertEquals("regular", updatedPreferences.defaultGame());
+        assertEquals(false, updatedPreferences.sounds());
     }
 
 
@@ -225,7 +278,7 @@ public class PlayerProfileIntegrationTest {
         // Create the profile
         PlayerProfile profile = new PlayerProfile();
         profile.setPlayerId(playerId);
-        profile.setPreferences("{}"); // Default empty preferences
+        profile.setPreferences(Preferences.empty()); // Default empty preferences
         profile.setWallet(150); // Set default wallet for completeness
         profile.setGamesPlayed(0);
         profile.setGamesWon(0);
@@ -254,7 +307,7 @@ public class PlayerProfileIntegrationTest {
         // Create the profile
         PlayerProfile profile = new PlayerProfile();
         profile.setPlayerId(playerId);
-        profile.setPreferences("{}"); // No preferences initially
+        profile.setPreferences(Preferences.empty()); // No preferences initially
         playerProfileRepository.save(profile);
 
         // Act - Attempt to update invalid preferences
@@ -294,7 +347,7 @@ public class PlayerProfileIntegrationTest {
         // Create the profile
         PlayerProfile profile = new PlayerProfile();
         profile.setPlayerId(playerId);
-        profile.setPreferences("{}"); // Default empty preferences
+        profile.setPreferences(Preferences.empty()); // Default empty preferences
         profile.setWallet(150); // Set default wallet for completeness
         profile.setGamesPlayed(0);
         profile.setGamesWon(0);
@@ -329,6 +382,54 @@ public class PlayerProfileIntegrationTest {
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    void testDeleteProfile_thenCreateAgain_doesNotHonourETagsOfTheDeletedProfile() throws Exception {
+        UUID playerId = UUID.randomUUID();
+        String token = jwtUtil.generateToken(playerId.toString(), "testUser", List.of(Role.PLAYER));
+        String requestBody = """
+                {
+                    "playerId": "%s"
+                }
+                """.formatted(playerId);
+
+        mockMvc.perform(post("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/json")
+                        .content(requestBody))
+                .andExpect(status().isCreated());
+        String staleEtag = mockMvc.perform(get("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(delete("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/json")
+                        .content(requestBody))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/json")
+                        .content(requestBody))
+                .andExpect(status().isCreated());
+
+        // the new profile is untouched just like the deleted one was, yet it must not answer to its ETag
+        String etag = mockMvc.perform(get("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", staleEtag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(staleEtag, etag);
+        mockMvc.perform(patch("/api/v1/player/v1/profile/wallet")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", staleEtag)
+                        .contentType("application/json")
+                        .content("{\"changeAmount\": -50}"))
+                .andExpect(status().isPreconditionFailed());
+
+        assertEquals(150, playerProfileRepository.findById(playerId).orElseThrow().getWallet());
+    }
+
     @Test
     void testGetWallet_returnsWalletAmount() throws Exception {
         UUID playerId = UUID.randomUUID();
@@ -342,7 +443,7 @@ public class PlayerProfileIntegrationTest {
         // Create the profile
         PlayerProfile profile = new PlayerProfile();
         profile.setPlayerId(playerId);
-        profile.setPreferences("{}"); // Default empty preferences
+        profile.setPreferences(Preferences.empty()); // Default empty preferences
         profile.setWallet(150); // Set default wallet for completeness
         profile.setGamesPlayed(0);
         profile.setGamesWon(0);
@@ -406,7 +507,7 @@ public class PlayerProfileIntegrationTest {
         // Create the profile
         PlayerProfile profile = new PlayerProfile();
         profile.setPlayerId(playerId);
-        profile.setPreferences("{}"); // Default empty preferences
+        profile.setPreferences(Preferences.empty()); // Default empty preferences
         profile.setWallet(150); // Set default wallet for completeness
         profile.setGamesPlayed(0);
         profile.setGamesWon(0);
@@ -443,7 +544,7 @@ public class PlayerProfileIntegrationTest {
         // Create the profile
         PlayerProfile profile = new PlayerProfile();
         profile.setPlayerId(playerId);
-        profile.setPreferences("{}"); // Default empty preferences
+        profile.setPreferences(Preferences.empty()); // Default empty preferences
         profile.setWallet(150); // Set default wallet for completeness
         profile.setGamesPlayed(0);
         profile.setGamesWon(0);
@@ -462,24 +563,387 @@ public class PlayerProfileIntegrationTest {
                     .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void testLookupProfiles_streamsFoundProfiles_andListsMissingIds() throws Exception {
+        UUID seatedId = UUID.randomUUID();
+        UUID unknownId = UUID.randomUUID();
+        PlayerProfile profile = new PlayerProfile();
+        profile.setPlayerId(seatedId);
+        profile.setPreferences(Preferences.defaults());
+        profile.setWallet(150);
+        profile.setGamesPlayed(4);
+        profile.setGamesWon(1);
+        playerProfileRepository.save(profile);
+        String token = jwtUtil.generateToken(UUID.randomUUID().toString(), "lobby", List.of(Role.ADMIN));
+
+        MvcResult result = mockMvc.perform(post("/api/v1/player/v1/profiles/lookup")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/json")
+                        .content("{\"playerIds\": [\"%s\", \"%s\"]}".formatted(seatedId, unknownId)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.profiles['%s'].gamesPlayed".formatted(seatedId)).value(4))
+                .andExpect(jsonPath("$.data.profiles['%s'].wallet".formatted(seatedId)).value(150))
+                .andExpect(jsonPath("$.data.missing[0]").value(unknownId.toString()));
+    }
+
+    @Test
+    void testLookupGamePreferences_returnsForbidden_forPlayerToken() throws Exception {
+        UUID playerId = UUID.randomUUID();
+        String token = jwtUtil.generateToken(playerId.toString(), "testUser", List.of(Role.PLAYER));
+
+        mockMvc.perform(post("/api/v1/player/v1/profiles/game-preferences/lookup")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/json")
+                        .content("{\"playerIds\": [\"%s\"]}".formatted(playerId)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void testLookupProfiles_returnsBadRequest_whenTooManyIds() throws Exception {
+        String token = jwtUtil.generateToken(UUID.randomUUID().toString(), "lobby", List.of(Role.ADMIN));
+        String ids = Stream.generate(() -> "\"" + UUID.randomUUID() + "\"")
+                .limit(ProfileLookupDTO.MAX_PLAYER_IDS + 1)
+                .collect(Collectors.joining(","));
+
+        mockMvc.perform(post("/api/v1/player/v1/profiles/lookup")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/json")
+                        .content("{\"playerIds\": [" + ids + "]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testExportProfiles_streamsOneJsonLinePerProfile_filteredByUpdatedAt() throws Exception {
+        List<UUID> playerIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        for (int i = 0; i < playerIds.size(); i++) {
+            PlayerProfile profile = new PlayerProfile();
+            profile.setPlayerId(playerIds.get(i));
+            profile.setPreferences(Preferences.defaults());
+            profile.setWallet(100 + i);
+            playerProfileRepository.save(profile);
+            jdbcTemplate.update("UPDATE catan_player.player_profiles SET updated_at = ? WHERE player_id = ?",
+                    LocalDateTime.of(2024, 1, 1 + i, 0, 0), playerIds.get(i));
+        }
+        String token = jwtUtil.generateToken(UUID.randomUUID().toString(), "exporter", List.of(Role.ADMIN));
+
+        MvcResult all = mockMvc.perform(get("/api/v1/player/v1/profiles/export")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(all))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<String> lines = body.lines().toList();
+        assertEquals(3, lines.size());
+        JsonNode first = objectMapper.readTree(lines.stream()
+                .filter(line -> line.contains(playerIds.get(0).toString())).findFirst().orElseThrow());
+        assertEquals(100, first.get("wallet").asInt());
+        assertEquals(Preferences.defaults().toMap().keySet(),
+                objectMapper.convertValue(first.get("preferences"), Map.class).keySet());
+
+        MvcResult incremental = mockMvc.perform(get("/api/v1/player/v1/profiles/export")
+                        .header("Authorization", "Bearer " + token)
+                        .param("updatedFrom", "2024-01-02T00:00:00")
+                        .param("updatedTo", "2024-01-03T00:00:00"))
+                .andReturn();
+        String incrementalBody = mockMvc.perform(asyncDispatch(incremental))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(1, incrementalBody.lines().count());
+        assertTrue(incrementalBody.contains(playerIds.get(1).toString()));
+    }
+
+    @Test
+    void testImportProfiles_insertsNewRows_andOnlyOverwritesOlderProfiles() throws Exception {
+        UUID newId = UUID.randomUUID();
+        UUID olderId = UUID.randomUUID();
+        UUID newerId = UUID.randomUUID();
+        for (UUID playerId : List.of(olderId, newerId)) {
+            PlayerProfile profile = new PlayerProfile();
+            profile.setPlayerId(playerId);
+            profile.setPreferences(Preferences.defaults());
+            profile.setWallet(150);
+            playerProfileRepository.save(profile);
+        }
+        jdbcTemplate.update("UPDATE catan_player.player_profiles SET updated_at = ? WHERE player_id = ?",
+                LocalDateTime.of(2024, 1, 1, 0, 0), olderId);
+        jdbcTemplate.update("UPDATE catan_player.player_profiles SET updated_at = ? WHERE player_id = ?",
+                LocalDateTime.of(2024, 3, 1, 0, 0), newerId);
+        String row = "{\"playerId\":\"%s\",\"preferences\":{\"notifications\":false},\"gamesPlayed\":%d," +
+                "\"wallet\":%d,\"createdAt\":\"2023-06-01T00:00:00\",\"updatedAt\":\"2024-02-01T00:00:00\"}\n";
+        String body = row.formatted(newId, 12, 300) + row.formatted(olderId, 8, 90) + row.formatted(newerId, 5, 10);
+        String token = jwtUtil.generateToken(UUID.randomUUID().toString(), "importer", List.of(Role.ADMIN));
+
+        mockMvc.perform(post("/api/v1/player/v1/profiles/import")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/x-ndjson")
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.rowsRead").value(3))
+                .andExpect(jsonPath("$.data.rowsWritten").value(2));
+
+        PlayerProfile imported = playerProfileRepository.findById(newId).orElseThrow();
+        assertEquals(12, imported.getGamesPlayed());
+        assertEquals(300, imported.getWallet());
+        assertEquals(false, imported.getPreferences().toMap().get("notifications"));
+        PlayerProfile overwritten = playerProfileRepository.findById(olderId).orElseThrow();
+        assertEquals(8, overwritten.getGamesPlayed());
+        assertEquals(90, overwritten.getWallet());
+        assertEquals(1, overwritten.getVersion());
+        assertEquals(150, playerProfileRepository.findById(newerId).orElseThrow().getWallet());
+    }
+
+    @Test
+    void testImportProfiles_returnsBadRequest_whenRowHasNoPlayerId() throws Exception {
+        String token = jwtUtil.generateToken(UUID.randomUUID().toString(), "importer", List.of(Role.ADMIN));
+
+        mockMvc.perform(post("/api/v1/player/v1/profiles/import")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/x-ndjson")
+                        .content("{\"gamesPlayed\":3}\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testImportProfiles_returnsBadRequest_whenPreferencesAreInvalid() throws Exception {
+        String token = jwtUtil.generateToken(UUID.randomUUID().toString(), "importer", List.of(Role.ADMIN));
+        UUID unknownKey = UUID.randomUUID();
+        UUID wrongType = UUID.randomUUID();
+
+        mockMvc.perform(post("/api/v1/player/v1/profiles/import")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/x-ndjson")
+                        .content("{\"playerId\":\"" + unknownKey + "\",\"preferences\":{\"theme\":\"dark\"}}\n"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/v1/player/v1/profiles/import")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/x-ndjson")
+                        .content("{\"playerId\":\"" + wrongType + "\",\"preferences\":{\"music\":\"loud\"}}\n"))
+                .andExpect(status().isBadRequest());
+
+        assertTrue(playerProfileRepository.findById(unknownKey).isEmpty());
+        assertTrue(playerProfileRepository.findById(wrongType).isEmpty());
+    }
+
+    @Test
+    void testGetProfile_answersIfNoneMatchWithNotModified_untilTheProfileChanges() throws Exception {
+        UUID playerId = UUID.randomUUID();
+        String token = jwtUtil.generateToken(playerId.toString(), "testUser", List.of(Role.PLAYER));
+        PlayerProfile profile = new PlayerProfile();
+        profile.setPlayerId(playerId);
+        profile.setPreferences(Preferences.defaults());
+        profile.setWallet(150);
+        playerProfileRepository.save(profile);
+
+        String etag = mockMvc.perform(get("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(patch("/api/v1/player/v1/profile/wallet")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/json")
+                        .content("{\"changeAmount\": 10}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/v1/player/v1/profile/wallet")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$.data.balance").value(160));
+    }
+
+    @Test
+    void testConditionalUpdates_returnPreconditionFailed_whenIfMatchIsStale() throws Exception {
+        UUID playerId = UUID.randomUUID();
+        String token = jwtUtil.generateToken(playerId.toString(), "testUser", List.of(Role.PLAYER));
+        PlayerProfile profile = new PlayerProfile();
+        profile.setPlayerId(playerId);
+        profile.setPreferences(Preferences.defaults());
+        profile.setWallet(150);
+        playerProfileRepository.save(profile);
+        String etag = mockMvc.perform(get("/api/v1/player/v1/profile/preferences")
+                        .header("Authorization", "Bearer " + token))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(patch("/api/v1/player/v1/profile/wallet")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", etag)
+                        .contentType("application/json")
+                        .content("{\"changeAmount\": -50}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(patch("/api/v1/player/v1/profile/wallet")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", etag)
+                        .contentType("application/json")
+                        .content("{\"changeAmount\": -50}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch("/api/v1/player/v1/profile/preferences")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", etag)
+                        .contentType("application/json")
+                        .content("{\"notifications\": false}"))
+                .andExpect(status().isPreconditionFailed());
+
+        PlayerProfile stored = playerProfileRepository.findById(playerId).orElseThrow();
+        assertEquals(100, stored.getWallet());
+        assertEquals(Preferences.defaults(), stored.getPreferences());
+    }
+
+    @Test
+    void testConditionalUpdates_chainOnTheReturnedETag_andAcceptETagLists() throws Exception {
+        UUID playerId = UUID.randomUUID();
+        String token = jwtUtil.generateToken(playerId.toString(), "testUser", List.of(Role.PLAYER));
+        PlayerProfile profile = new PlayerProfile();
+        profile.setPlayerId(playerId);
+        profile.setPreferences(Preferences.defaults());
+        profile.setWallet(150);
+        playerProfileRepository.save(profile);
+
+        String etag = mockMvc.perform(patch("/api/v1/player/v1/profile/wallet")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", "\"0\"")
+                        .contentType("application/json")
+                        .content("{\"changeAmount\": -50}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // the ETag of one write is the precondition of the next, without a GET in between
+        mockMvc.perform(patch("/api/v1/player/v1/profile/preferences")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", etag)
+                        .contentType("application/json")
+                        .content("{\"music\": false}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""));
+
+        // any tag of the list may be current, weak tags and wildcards are handled as well
+        mockMvc.perform(patch("/api/v1/player/v1/profile/wallet")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", "\"1\", \"2\"")
+                        .contentType("application/json")
+                        .content("{\"changeAmount\": 5}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+        mockMvc.perform(patch("/api/v1/player/v1/profile/wallet")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", "\"1\", W/\"3\"")
+                        .contentType("application/json")
+                        .content("{\"changeAmount\": 5}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(patch("/api/v1/player/v1/profile/wallet")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", "*")
+                        .contentType("application/json")
+                        .content("{\"changeAmount\": 5}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""));
+
+        assertEquals(110, playerProfileRepository.findById(playerId).orElseThrow().getWallet());
+    }
+
+    @Test
+    void testGetProfile_servesTheCachedResponse_untilAWriteChangesIt() throws Exception {
+        UUID playerId = UUID.randomUUID();
+        String token = jwtUtil.generateToken(playerId.toString(), "testUser", List.of(Role.PLAYER));
+        PlayerProfile profile = new PlayerProfile();
+        profile.setPlayerId(playerId);
+        profile.setPreferences(Preferences.defaults());
+        profile.setWallet(150);
+        playerProfileRepository.save(profile);
 
-    // Helper methods
-    private String convertMappedPreferencesToJson(Map<String, Object> preferences) {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            return mapper.writeValueAsString(preferences);
-        } catch (JsonProcessingException e) {
-            throw new FailedConversionToJsonException("Unable to convert Map to Json string", e);
+        String first = mockMvc.perform(get("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/json"))
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.wallet").value(150))
+                .andReturn().getResponse().getContentAsString();
+        assertNotNull(profileResponseCache.getNativeCache().getIfPresent(playerId));
+
+        MockHttpServletResponse gzipped = mockMvc.perform(get("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token)
+                        .header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        byte[] body = gzipped.getContentAsByteArray();
+        if ("gzip".equals(gzipped.getHeader("Content-Encoding"))) {
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = in.readAllBytes();
+            }
         }
+        assertEquals(first, new String(body, StandardCharsets.UTF_8));
+
+        mockMvc.perform(patch("/api/v1/player/v1/profile/wallet")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType("application/json")
+                        .content("{\"changeAmount\": 25}"))
+                .andExpect(status().isOk());
+        assertNull(profileResponseCache.getNativeCache().getIfPresent(playerId));
+
+        mockMvc.perform(get("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.wallet").value(175));
     }
 
-    private Map<String, Object> convertJsonToMappedPreferences(String preferences) {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            return mapper.readValue(preferences, Map.class);
-        } catch (JsonProcessingException e) {
-            throw new FailedConversionToJsonException("Unable to convert Json string to Map", e);
+    @Test
+    void testGetProfile_givesTheGzipBodyItsOwnETag_andAcceptsEitherInIfNoneMatch() throws Exception {
+        UUID playerId = UUID.randomUUID();
+        String token = jwtUtil.generateToken(playerId.toString(), "testUser", List.of(Role.PLAYER));
+        PlayerProfile profile = new PlayerProfile();
+        profile.setPlayerId(playerId);
+        profile.setPreferences(Preferences.defaults());
+        profile.setWallet(150);
+        playerProfileRepository.save(profile);
+
+        mockMvc.perform(get("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\""));
+        MockHttpServletResponse gzipped = mockMvc.perform(get("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token)
+                        .header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        // gzip is only used when it makes the body smaller, the ETag follows the bytes actually sent
+        assertEquals("gzip".equals(gzipped.getHeader("Content-Encoding")) ? "\"0-gzip\"" : "\"0\"",
+                gzipped.getHeader("ETag"));
+
+        for (String etag : List.of("\"0\"", "\"0-gzip\"")) {
+            mockMvc.perform(get("/api/v1/player/v1/profile")
+                            .header("Authorization", "Bearer " + token)
+                            .header("Accept-Encoding", "gzip")
+                            .header("If-None-Match", etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", etag));
         }
+
+        mockMvc.perform(patch("/api/v1/player/v1/profile/wallet")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-Match", "\"0-gzip\"")
+                        .contentType("application/json")
+                        .content("{\"changeAmount\": 25}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/player/v1/profile")
+                        .header("Authorization", "Bearer " + token)
+                        .header("If-None-Match", "\"0-gzip\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""));
     }
 
 }
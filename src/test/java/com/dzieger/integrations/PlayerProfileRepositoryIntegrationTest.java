@@ -0,0 +1,216 @@
+package com.dzieger.integrations;
+
+import com.dzieger.models.GameStats;
+import com.dzieger.models.GameStatsDelta;
+import com.dzieger.models.LeaderboardPosition;
+import com.dzieger.models.MergedPreferences;
+import com.dzieger.models.PlayerProfile;
+import com.dzieger.models.WalletBalance;
+import com.dzieger.models.Preferences;
+import com.dzieger.repositories.PlayerProfileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class PlayerProfileRepositoryIntegrationTest {
+
+    @Autowired
+    private PlayerProfileRepository playerProfileRepository;
+
+    @BeforeEach
+    void cleanUp() {
+        playerProfileRepository.deleteAll();
+    }
+
+    @Test
+    void testApplyGameStatsDeltas_incrementsCountersInOneBatch() {
+        UUID firstPlayer = createProfile(4, 1);
+        UUID secondPlayer = createProfile(0, 0);
+        UUID missingPlayer = UUID.randomUUID();
+
+        int[] updateCounts = playerProfileRepository.applyGameStatsDeltas(List.of(
+                new GameStatsDelta(firstPlayer, 3, 2),
+                new GameStatsDelta(secondPlayer, 1, 0),
+                new GameStatsDelta(missingPlayer, 1, 1)));
+
+        assertArrayEquals(new int[]{1, 1, 0}, updateCounts);
+
+        List<GameStats> stats = playerProfileRepository.findGameStatsByPlayerIdIn(List.of(firstPlayer, secondPlayer));
+        assertEquals(2, stats.size());
+        assertTrue(stats.contains(new GameStats(firstPlayer, 7, 3, 1)));
+        assertTrue(stats.contains(new GameStats(secondPlayer, 1, 0, 1)));
+    }
+
+    @Test
+    void testIncrementGameStats_returnsNewTotals() {
+        UUID playerId = createProfile(5, 2);
+
+        Optional<GameStats> stats = playerProfileRepository.incrementGameStats(playerId, 1, 1);
+
+        assertTrue(stats.isPresent());
+        assertEquals(new GameStats(playerId, 6, 3, 1), stats.get());
+        assertEquals(6, playerProfileRepository.findById(playerId).orElseThrow().getGamesPlayed());
+    }
+
+    @Test
+    void testIncrementGameStats_returnsEmpty_whenProfileDoesNotExist() {
+        assertTrue(playerProfileRepository.incrementGameStats(UUID.randomUUID(), 1, 0).isEmpty());
+    }
+
+    @Test
+    void testApplyWalletChange_returnsNewBalanceAndVersion() {
+        UUID playerId = createProfile(0, 0);
+
+        assertEquals(Optional.of(new WalletBalance(160, 1)), playerProfileRepository.applyWalletChange(playerId, 10));
+        assertEquals(Optional.of(new WalletBalance(140, 2)), playerProfileRepository.applyWalletChange(playerId, -20));
+    }
+
+    @Test
+    void testMergePreferences_mergesPatchIntoStoredDocument_andReturnsIt() {
+        UUID playerId = createProfile(0, 0);
+        playerProfileRepository.mergePreferences(playerId, Preferences.empty().merge(Map.of("sounds", true, "language", "en")));
+
+        Optional<MergedPreferences> merged = playerProfileRepository.mergePreferences(playerId,
+                Preferences.empty().merge(Map.of("sounds", false, "music", true)));
+
+        Preferences expected = Preferences.empty().merge(Map.of("sounds", false, "music", true, "language", "en"));
+        assertEquals(Optional.of(new MergedPreferences(expected, 2)), merged);
+        assertEquals(expected, playerProfileRepository.findById(playerId).orElseThrow().getPreferences());
+    }
+
+    @Test
+    void testMergePreferences_returnsEmpty_whenVersionMovedOrProfileMissing() {
+        UUID playerId = createProfile(0, 0);
+        Preferences patch = Preferences.empty().merge(Map.of("music", false));
+
+        assertTrue(playerProfileRepository.mergePreferences(playerId, patch, 3).isEmpty());
+        assertTrue(playerProfileRepository.mergePreferences(UUID.randomUUID(), patch).isEmpty());
+        assertEquals(1, playerProfileRepository.mergePreferences(playerId, patch, 0).orElseThrow().version());
+    }
+
+    @Test
+    void testApplyLeaderboardPositions_updatesChangedRowsInOneStatement() {
+        UUID movedPlayer = createProfile(0, 0);
+        UUID unchangedPlayer = createProfile(0, 0);
+        UUID missingPlayer = UUID.randomUUID();
+
+        Map<UUID, Long> versions = playerProfileRepository.applyLeaderboardPositions(List.of(
+                new LeaderboardPosition(movedPlayer, 3, 1),
+                new LeaderboardPosition(unchangedPlayer, 0, 1),
+                new LeaderboardPosition(missingPlayer, 7, 1)));
+
+        assertEquals(Map.of(movedPlayer, 1L), versions);
+        PlayerProfile moved = playerProfileRepository.findById(movedPlayer).orElseThrow();
+        assertEquals(3, moved.getLeaderboardPosition());
+        assertEquals(1, moved.getLeaderboardSequence());
+        // the newer sequence is recorded, but the row did not move so its version stays
+        PlayerProfile unchanged = playerProfileRepository.findById(unchangedPlayer).orElseThrow();
+        assertEquals(0, unchanged.getVersion());
+        assertEquals(1, unchanged.getLeaderboardSequence());
+    }
+
+    @Test
+    void testApplyLeaderboardPositions_rejectsStaleSequences() {
+        UUID playerId = createProfile(0, 0);
+
+        assertEquals(Map.of(playerId, 1L), playerProfileRepository.applyLeaderboardPositions(
+                List.of(new LeaderboardPosition(playerId, 5, 10))));
+        // older and equal sequences are ignored, a newer one is applied
+        assertEquals(Map.of(), playerProfileRepository.applyLeaderboardPositions(
+                List.of(new LeaderboardPosition(playerId, 8, 9))));
+        assertEquals(Map.of(), playerProfileRepository.applyLeaderboardPositions(
+                List.of(new LeaderboardPosition(playerId, 8, 10))));
+        assertEquals(Map.of(playerId, 2L), playerProfileRepository.applyLeaderboardPositions(
+                List.of(new LeaderboardPosition(playerId, 4, 11))));
+        // once a row has a sequence, events without one can't overwrite it
+        assertEquals(Map.of(), playerProfileRepository.applyLeaderboardPositions(
+                List.of(new LeaderboardPosition(playerId, 6, 0))));
+
+        PlayerProfile profile = playerProfileRepository.findById(playerId).orElseThrow();
+        assertEquals(4, profile.getLeaderboardPosition());
+        assertEquals(11, profile.getLeaderboardSequence());
+        assertEquals(2, profile.getVersion());
+    }
+
+    @Test
+    void testApplyLeaderboardPositions_unchangedNewerPosition_stillRejectsALateOlderEvent() {
+        UUID playerId = createProfile(0, 0);
+        UUID unsequencedPlayer = createProfile(0, 0);
+
+        assertEquals(Map.of(playerId, 1L), playerProfileRepository.applyLeaderboardPositions(
+                List.of(new LeaderboardPosition(playerId, 5, 10))));
+        // same position with a newer sequence, nothing moves but the sequence advances
+        assertEquals(Map.of(), playerProfileRepository.applyLeaderboardPositions(
+                List.of(new LeaderboardPosition(playerId, 5, 12))));
+        // delivered late, older than the event above
+        assertEquals(Map.of(), playerProfileRepository.applyLeaderboardPositions(
+                List.of(new LeaderboardPosition(playerId, 7, 11))));
+
+        PlayerProfile profile = playerProfileRepository.findById(playerId).orElseThrow();
+        assertEquals(5, profile.getLeaderboardPosition());
+        assertEquals(12, profile.getLeaderboardSequence());
+        assertEquals(1, profile.getVersion());
+
+        // rows that never had a sequence still take unsequenced events
+        assertEquals(Map.of(unsequencedPlayer, 1L), playerProfileRepository.applyLeaderboardPositions(
+                List.of(new LeaderboardPosition(unsequencedPlayer, 6, 0))));
+    }
+
+    @Test
+    void testInsertProfile_insertsOnce_andLeavesAnExistingProfileAlone() {
+        UUID playerId = UUID.randomUUID();
+
+        PlayerProfile inserted = playerProfileRepository.insertProfile(playerId, Preferences.defaults(), 150).orElseThrow();
+        assertEquals(playerId, inserted.getPlayerId());
+        assertEquals(Preferences.defaults(), inserted.getPreferences());
+        assertEquals(150, inserted.getWallet());
+        assertNotNull(inserted.getCreatedAt());
+        // every insert starts a version range of its own, so a re-created profile never repeats a version
+        long nextVersion = playerProfileRepository.insertProfile(UUID.randomUUID(), Preferences.defaults(), 150)
+                .orElseThrow().getVersion();
+        assertTrue(inserted.getVersion() > 0);
+        assertTrue(nextVersion - inserted.getVersion() >= 1L << 32, inserted.getVersion() + " then " + nextVersion);
+
+        assertTrue(playerProfileRepository.insertProfile(playerId, Preferences.empty(), 0).isEmpty());
+        PlayerProfile stored = playerProfileRepository.findById(playerId).orElseThrow();
+        assertEquals(Preferences.defaults(), stored.getPreferences());
+        assertEquals(150, stored.getWallet());
+    }
+
+    @Test
+    void testFindOrInsertProfile_returnsTheStoredProfile_orInsertsOne() {
+        UUID existingPlayer = createProfile(4, 1);
+        UUID newPlayer = UUID.randomUUID();
+
+        PlayerProfile existing = playerProfileRepository.findOrInsertProfile(existingPlayer, Preferences.defaults(), 150)
+                .orElseThrow();
+        assertEquals(4, existing.getGamesPlayed());
+        assertEquals(Preferences.empty(), existing.getPreferences());
+
+        PlayerProfile created = playerProfileRepository.findOrInsertProfile(newPlayer, Preferences.defaults(), 150)
+                .orElseThrow();
+        assertEquals(0, created.getGamesPlayed());
+        assertEquals(Preferences.defaults(), created.getPreferences());
+        assertEquals(2, playerProfileRepository.count());
+    }
+
+    // Helper methods
+    private UUID createProfile(int gamesPlayed, int gamesWon) {
+        return TestProfiles.create(playerProfileRepository, profile -> {
+            profile.setGamesPlayed(gamesPlayed);
+            profile.setGamesWon(gamesWon);
+        });
+    }
+
+}
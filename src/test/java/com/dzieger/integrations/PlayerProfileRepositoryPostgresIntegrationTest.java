@@ -0,0 +1,100 @@
+package com.dzieger.integrations;
+
+import com.dzieger.codecs.PreferenceCodec;
+import com.dzieger.models.ProfileRow;
+import com.dzieger.repositories.PlayerProfileRepositoryCustomImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The Postgres-only paths of the custom repository, which the H2 test database never takes. Runs against any
+// reachable Postgres in a throwaway schema, e.g.
+//   PLAYER_TEST_POSTGRES_URL=jdbc:postgresql://localhost:5432/postgres PLAYER_TEST_POSTGRES_USERNAME=postgres \
+//   PLAYER_TEST_POSTGRES_PASSWORD=postgres mvn test -Dtest=PlayerProfileRepositoryPostgresIntegrationTest
+@EnabledIfEnvironmentVariable(named = "PLAYER_TEST_POSTGRES_URL", matches = ".+")
+public class PlayerProfileRepositoryPostgresIntegrationTest {
+
+    private final String schema = "player_test_" + UUID.randomUUID().toString().replace("-", "");
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private PlayerProfileRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(System.getenv("PLAYER_TEST_POSTGRES_URL"),
+                System.getenv().getOrDefault("PLAYER_TEST_POSTGRES_USERNAME", "postgres"),
+                System.getenv().getOrDefault("PLAYER_TEST_POSTGRES_PASSWORD", ""));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        repository = new PlayerProfileRepositoryCustomImpl(jdbcTemplate, new PreferenceCodec(), schema);
+
+        jdbcTemplate.execute("CREATE SCHEMA " + schema);
+        jdbcTemplate.execute("CREATE TABLE " + schema + ".player_profiles (" +
+                "player_id uuid PRIMARY KEY, preferences jsonb, games_played integer NOT NULL, " +
+                "games_won integer NOT NULL, leaderboard_position integer, " +
+                "leaderboard_sequence bigint NOT NULL DEFAULT 0, time_played bigint NOT NULL, wallet integer NOT NULL, " +
+                "created_at timestamp NOT NULL, updated_at timestamp NOT NULL, version bigint NOT NULL DEFAULT 0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP SCHEMA " + schema + " CASCADE");
+    }
+
+    @Test
+    void testUpsertProfiles_copiesRowsThroughTheStagingTable() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        UUID overwritten = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+        UUID inserted = UUID.randomUUID();
+        transactionTemplate.executeWithoutResult(status -> repository.upsertProfiles(List.of(
+                row(overwritten, "{\"theme\":\"light\"}", 1, now.minusDays(2), 3),
+                row(kept, "{\"theme\":\"light\"}", 1, now, 7))));
+
+        Map<UUID, Long> versions = transactionTemplate.execute(status -> repository.upsertProfiles(List.of(
+                row(overwritten, "{\"theme\":\"dark\"}", 2, now.minusDays(1), 0),
+                row(overwritten, "{\"theme\":\"darker\"}", 3, now, 0),
+                row(kept, "{\"theme\":\"dark\"}", 2, now.minusDays(1), 0),
+                // quotes, a comma and an escape in the JSON must survive the csv encoding
+                row(inserted, "{\"nickname\":\"say \\\"hi\\\",\\nbye\"}", 4, now, 5),
+                row(UUID.randomUUID(), null, 0, now, 0))));
+
+        assertEquals(3, versions.size());
+        assertEquals(4L, versions.get(overwritten));
+        assertEquals(5L, versions.get(inserted));
+        assertFalse(versions.containsKey(kept));
+        assertEquals("{\"theme\": \"darker\"}", preferences(overwritten));
+        assertEquals(3, wallet(overwritten));
+        assertEquals("{\"theme\": \"light\"}", preferences(kept));
+        assertEquals("{\"nickname\": \"say \\\"hi\\\",\\nbye\"}", preferences(inserted));
+    }
+
+    // Helper methods
+    private ProfileRow row(UUID playerId, String preferences, int wallet, LocalDateTime updatedAt, long version) {
+        return new ProfileRow(playerId, preferences, 10, 4, 7, 1, 3600, wallet, updatedAt.minusDays(10), updatedAt, version);
+    }
+
+    private String preferences(UUID playerId) {
+        return jdbcTemplate.queryForObject("SELECT preferences::text FROM " + schema + ".player_profiles " +
+                "WHERE player_id = ?", String.class, playerId);
+    }
+
+    private int wallet(UUID playerId) {
+        return jdbcTemplate.queryForObject("SELECT wallet FROM " + schema + ".player_profiles WHERE player_id = ?",
+                Integer.class, playerId);
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.dzieger.integrations;
+
+import com.dzieger.dedup.ProcessedEventIndex;
+import com.dzieger.eventPayloadDtos.GameCompletedEvent;
+import com.dzieger.models.PlayerProfile;
+import com.dzieger.models.ProcessedEvent;
+import com.dzieger.repositories.PlayerProfileRepository;
+import com.dzieger.repositories.ProcessedEventRepository;
+import com.dzieger.services.PlayerProfileService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.config.ScheduledTaskHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class ProcessedEventIndexIntegrationTest {
+
+    @Autowired
+    private ProcessedEventIndex processedEventIndex;
+
+    @Autowired
+    private ProcessedEventRepository processedEventRepository;
+
+    @Autowired
+    private PlayerProfileRepository playerProfileRepository;
+
+    @Autowired
+    private PlayerProfileService playerProfileService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ScheduledTaskHolder scheduledTaskHolder;
+
+    @BeforeEach
+    void cleanUp() {
+        processedEventRepository.deleteAll();
+    }
+
+    @Test
+    void testClaim_returnsOnlyIdsNotProcessedBefore() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        assertEquals(Set.of(first), claim(List.of(first, first)));
+        assertEquals(Set.of(second), claim(List.of(first, second)));
+        assertEquals(Set.of(), claim(List.of(first, second)));
+        assertEquals(2, processedEventRepository.count());
+    }
+
+    @Test
+    void testClaim_rolledBack_leavesIdUnclaimed() {
+        UUID eventId = UUID.randomUUID();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            processedEventIndex.claim(List.of(eventId));
+            status.setRollbackOnly();
+        });
+
+        // the filter already holds the id, the lookup finds it was never recorded
+        assertEquals(Set.of(eventId), claim(List.of(eventId)));
+    }
+
+    @Test
+    void testHandleGameCompletedBatch_redeliveredEventsAreCountedOnce() {
+        UUID playerId = TestProfiles.create(playerProfileRepository);
+        List<GameCompletedEvent> events = List.of(
+                new GameCompletedEvent(playerId, true, UUID.randomUUID()),
+                new GameCompletedEvent(playerId, false, UUID.randomUUID()));
+        double dropped = duplicates();
+
+        playerProfileService.handleGameCompletedBatch(events);
+        playerProfileService.handleGameCompletedBatch(events);
+        playerProfileService.handleGameCompleted(events.get(0));
+
+        PlayerProfile profile = playerProfileRepository.findById(playerId).orElseThrow();
+        assertEquals(2, profile.getGamesPlayed());
+        assertEquals(1, profile.getGamesWon());
+        assertEquals(3, duplicates() - dropped);
+    }
+
+    @Test
+    void testPrune_removesIdsOlderThanTheTtl() {
+        UUID old = UUID.randomUUID();
+        UUID recent = UUID.randomUUID();
+        processedEventRepository.saveAll(List.of(
+                new ProcessedEvent(old, LocalDateTime.now().minusDays(30)),
+                new ProcessedEvent(recent, LocalDateTime.now())));
+
+        processedEventIndex.prune();
+
+        assertFalse(processedEventRepository.existsById(old));
+        assertTrue(processedEventRepository.existsById(recent));
+    }
+
+    @Test
+    void testPrune_isScheduledWhileTheOutboxRelayIsDisabled() {
+        // the test profile turns the relay off
+        assertTrue(scheduledTaskHolder.getScheduledTasks().stream()
+                .anyMatch(task -> task.toString().endsWith(ProcessedEventIndex.class.getName() + ".prune")));
+    }
+
+    // Helper methods
+    private Set<UUID> claim(List<UUID> eventIds) {
+        return transactionTemplate.execute(status -> processedEventIndex.claim(eventIds));
+    }
+
+    private double duplicates() {
+        return meterRegistry.find("player.events.duplicates").counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.dzieger.integrations;
+
+import com.dzieger.codecs.PlayerEventCodec;
+import com.dzieger.codecs.PreferenceCodec;
+import com.dzieger.config.ProducerProfile;
+import com.dzieger.eventPayloadDtos.LeaderboardStatsEvent;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.condition.EmbeddedKafkaCondition;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Sends the same keyed leaderboard-stats load with every producer profile and reports messages per second.
+// Each player's events carry an increasing sequence, so the test also checks they arrive in order.
+@EmbeddedKafka(partitions = 4, topics = {"stats-default", "stats-latency", "stats-throughput"})
+public class ProducerProfileThroughputIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProducerProfileThroughputIntegrationTest.class);
+
+    private static final int PLAYERS = 200;
+    private static final int EVENTS_PER_PLAYER = 100;
+
+    private final PlayerEventCodec playerEventCodec = new PlayerEventCodec(new PreferenceCodec(), "binary");
+
+    @ParameterizedTest
+    @EnumSource(ProducerProfile.class)
+    void testProducerProfile_keepsPerPlayerOrderAndReportsThroughput(ProducerProfile profile) throws Exception {
+        EmbeddedKafkaBroker embeddedKafka = EmbeddedKafkaCondition.getBroker();
+        String topic = "stats-" + profile.name().toLowerCase();
+        List<UUID> players = new ArrayList<>(PLAYERS);
+        for (int i = 0; i < PLAYERS; i++) {
+            players.add(UUID.randomUUID());
+        }
+
+        Map<String, Object> props = KafkaTestUtils.producerProps(embeddedKafka);
+        props.putAll(profile.configs());
+        DefaultKafkaProducerFactory<String, byte[]> producerFactory =
+                new DefaultKafkaProducerFactory<>(props, new StringSerializer(), new ByteArraySerializer());
+        KafkaTemplate<String, byte[]> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        // warm up the connection and metadata so the first profile is not penalised
+        kafkaTemplate.send(topic, "warmup", new byte[0]).get(10, TimeUnit.SECONDS);
+
+        List<CompletableFuture<SendResult<String, byte[]>>> acks = new ArrayList<>(PLAYERS * EVENTS_PER_PLAYER);
+        long start = System.nanoTime();
+        for (int sequence = 0; sequence < EVENTS_PER_PLAYER; sequence++) {
+            for (UUID playerId : players) {
+                byte[] payload = playerEventCodec.encode(new LeaderboardStatsEvent(playerId, sequence));
+                acks.add(kafkaTemplate.send(topic, playerId.toString(), payload));
+            }
+        }
+        CompletableFuture.allOf(acks.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        long elapsedNanos = System.nanoTime() - start;
+        producerFactory.destroy();
+
+        double messagesPerSecond = acks.size() / (elapsedNanos / 1e9);
+        log.info("Producer profile {}: {} messages in {}ms, {} messages/s", profile, acks.size(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), String.format("%.0f", messagesPerSecond));
+
+        assertPerPlayerOrder(embeddedKafka, topic, players);
+    }
+
+    // Helper methods
+
+    private void assertPerPlayerOrder(EmbeddedKafkaBroker embeddedKafka, String topic, List<UUID> players) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("throughput-test-" + UUID.randomUUID(), "false", embeddedKafka);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000);
+        Map<String, Integer> partitionByPlayer = new HashMap<>();
+        Map<String, Double> lastSequenceByPlayer = new HashMap<>();
+        int[] received = {0};
+
+        try (Consumer<String, byte[]> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new ByteArrayDeserializer()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, topic);
+            await().atMost(Duration.ofSeconds(30)).until(() -> {
+                for (ConsumerRecord<String, byte[]> record : KafkaTestUtils.getRecords(consumer, Duration.ofMillis(200))) {
+                    if (record.value().length == 0) {
+                        continue;
+                    }
+                    LeaderboardStatsEvent event = playerEventCodec.decode(record.value(), LeaderboardStatsEvent.class);
+                    assertEquals(event.getPlayerId().toString(), record.key());
+                    assertEquals(partitionByPlayer.computeIfAbsent(record.key(), key -> record.partition()), record.partition());
+                    Double previous = lastSequenceByPlayer.put(record.key(), event.getStats());
+                    assertEquals(previous == null ? 0 : previous + 1, event.getStats());
+                    received[0]++;
+                }
+                return received[0] >= PLAYERS * EVENTS_PER_PLAYER;
+            });
+        }
+
+        assertEquals(PLAYERS * EVENTS_PER_PLAYER, received[0]);
+        assertEquals(players.size(), lastSequenceByPlayer.size());
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.dzieger.integrations;
+
+import com.dzieger.SecurityConfig.JwtUtil;
+import com.dzieger.cache.ProfileCache;
+import com.dzieger.cache.ProfileSnapshot;
+import com.dzieger.dtos.WalletDTO;
+import com.dzieger.models.enums.Role;
+import com.dzieger.repositories.PlayerProfileRepository;
+import com.dzieger.services.PlayerProfileService;
+import com.dzieger.services.ProfileTransferService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "player.kafka.listeners.auto-startup=true",
+        "player.cache.profile.invalidation.enabled=true"
+})
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 1, topics = {ProfileInvalidationIntegrationTest.TOPIC, "game-completed"})
+@DirtiesContext
+public class ProfileInvalidationIntegrationTest {
+
+    static final String TOPIC = "player-profile-invalidated";
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Autowired
+    private ProfileCache profileCache;
+
+    @Autowired
+    private PlayerProfileService playerProfileService;
+
+    @Autowired
+    private ProfileTransferService profileTransferService;
+
+    @Autowired
+    private PlayerProfileRepository playerProfileRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void waitForListener() {
+        // the listener starts at the latest offset, so it has to be assigned before anything is sent
+        ContainerTestUtils.waitForAssignment(registry.getListenerContainer("profileInvalidationListener"),
+                embeddedKafka.getPartitionsPerTopic());
+    }
+
+    @Test
+    void testInvalidationFromAnotherNode_evictsCachedProfile() {
+        UUID playerId = TestProfiles.create(playerProfileRepository);
+        cache(playerId);
+
+        // another node changes the wallet and announces the new version
+        long version = playerProfileRepository.applyWalletChange(playerId, 10).orElseThrow().version();
+        kafkaTemplate.send(TOPIC, playerId.toString(), message(playerId, version));
+
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> profileCache.getNativeCache().getIfPresent(playerId) == null);
+    }
+
+    @Test
+    void testInvalidationForCachedVersion_keepsCachedProfile() {
+        UUID currentPlayer = TestProfiles.create(playerProfileRepository);
+        UUID stalePlayer = TestProfiles.create(playerProfileRepository);
+        cache(currentPlayer);
+        cache(stalePlayer);
+
+        // both messages land on the same partition, so once the second is processed so is the first
+        kafkaTemplate.send(TOPIC, currentPlayer.toString(), message(currentPlayer, 0));
+        kafkaTemplate.send(TOPIC, stalePlayer.toString(), message(stalePlayer, 1));
+
+        await().atMost(Duration.ofSeconds(10))
+                .until(() -> profileCache.getNativeCache().getIfPresent(stalePlayer) == null);
+        assertNotNull(profileCache.getNativeCache().getIfPresent(currentPlayer));
+    }
+
+    @Test
+    void testUpdateWallet_publishesInvalidationWithNewVersion() {
+        UUID playerId = TestProfiles.create(playerProfileRepository);
+        String token = "Bearer " + jwtUtil.generateToken(playerId.toString(), "testUser", List.of(Role.PLAYER));
+
+        Map<String, Object> props = KafkaTestUtils.consumerProps("invalidation-test-" + UUID.randomUUID(), "false", embeddedKafka);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, TOPIC);
+
+            playerProfileService.updateWallet(token, new WalletDTO(0, 5));
+
+            List<String> messages = new ArrayList<>();
+            await().atMost(Duration.ofSeconds(10)).until(() -> {
+                for (ConsumerRecord<String, String> record : KafkaTestUtils.getRecords(consumer, Duration.ofMillis(500))) {
+                    if (playerId.toString().equals(record.key())) {
+                        messages.add(record.value());
+                    }
+                }
+                return !messages.isEmpty();
+            });
+            assertEquals(List.of(playerId + ":1"), messages);
+        }
+    }
+
+    @Test
+    void testImportProfiles_publishesInvalidationForEveryWrittenProfile() throws Exception {
+        UUID overwrittenPlayer = TestProfiles.create(playerProfileRepository);
+        UUID newPlayer = UUID.randomUUID();
+        String row = "{\"playerId\":\"%s\",\"wallet\":40,\"updatedAt\":\"2999-01-01T00:00:00\",\"version\":3}\n";
+        byte[] body = (row.formatted(overwrittenPlayer) + row.formatted(newPlayer)).getBytes(StandardCharsets.UTF_8);
+
+        Map<String, Object> props = KafkaTestUtils.consumerProps("invalidation-test-" + UUID.randomUUID(), "false", embeddedKafka);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, TOPIC);
+
+            profileTransferService.importProfiles(new ByteArrayInputStream(body));
+
+            List<String> messages = new ArrayList<>();
+            await().atMost(Duration.ofSeconds(10)).until(() -> {
+                for (ConsumerRecord<String, String> record : KafkaTestUtils.getRecords(consumer, Duration.ofMillis(500))) {
+                    if (overwrittenPlayer.toString().equals(record.key()) || newPlayer.toString().equals(record.key())) {
+                        messages.add(record.value());
+                    }
+                }
+                return messages.size() == 2;
+            });
+            // an overwrite bumps the stored version, a new row keeps the imported one
+            assertEquals(Set.of(overwrittenPlayer + ":1", newPlayer + ":3"), Set.copyOf(messages));
+        }
+    }
+
+    // Helper methods
+
+    private static byte[] message(UUID playerId, long version) {
+        return (playerId + ":" + version).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private void cache(UUID playerId) {
+        profileCache.get(playerId, id -> playerProfileRepository.findById(id).map(ProfileSnapshot::of).orElse(null));
+        assertNotNull(profileCache.getNativeCache().getIfPresent(playerId));
+    }
+
+}
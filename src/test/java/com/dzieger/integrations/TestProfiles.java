@@ -0,0 +1,31 @@
+package com.dzieger.integrations;
+
+import com.dzieger.models.PlayerProfile;
+import com.dzieger.models.Preferences;
+import com.dzieger.repositories.PlayerProfileRepository;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Saves profiles for the integration tests: a new player id, empty preferences and the starting wallet,
+// with whatever the test needs set on top
+final class TestProfiles {
+
+    private TestProfiles() {
+    }
+
+    static UUID create(PlayerProfileRepository playerProfileRepository) {
+        return create(playerProfileRepository, profile -> { });
+    }
+
+    static UUID create(PlayerProfileRepository playerProfileRepository, Consumer<PlayerProfile> customizer) {
+        PlayerProfile profile = new PlayerProfile();
+        profile.setPlayerId(UUID.randomUUID());
+        profile.setPreferences(Preferences.empty());
+        profile.setWallet(150);
+        customizer.accept(profile);
+        playerProfileRepository.save(profile);
+        return profile.getPlayerId();
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.dzieger.integrations;
+
+import com.dzieger.SecurityConfig.JwtUtil;
+import com.dzieger.dtos.WalletDTO;
+import com.dzieger.exceptions.InsufficientFundsException;
+import com.dzieger.models.PlayerProfile;
+import com.dzieger.models.enums.Role;
+import com.dzieger.repositories.PlayerProfileRepository;
+import com.dzieger.services.PlayerProfileService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+public class WalletConcurrencyIntegrationTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private PlayerProfileService playerProfileService;
+
+    @Autowired
+    private PlayerProfileRepository playerProfileRepository;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void cleanUp() {
+        playerProfileRepository.deleteAll();
+    }
+
+    @Test
+    void testUpdateWallet_concurrentCreditsAndDebits_keepExactBalance() throws Exception {
+        UUID playerId = createProfile(1000);
+        String token = "Bearer " + jwtUtil.generateToken(playerId.toString(), "testUser", List.of(Role.PLAYER));
+        int operationsPerThread = 50;
+
+        // every thread credits 3 and debits 2 per iteration, so each iteration nets +1
+        runConcurrently(operationsPerThread, () -> {
+            playerProfileService.updateWallet(token, new WalletDTO(0, 3));
+            playerProfileService.updateWallet(token, new WalletDTO(0, -2));
+        });
+
+        PlayerProfile profile = playerProfileRepository.findById(playerId).orElseThrow();
+        assertEquals(1000 + THREADS * operationsPerThread, profile.getWallet());
+        assertEquals(THREADS * operationsPerThread * 2L, profile.getVersion());
+    }
+
+    @Test
+    void testUpdateWallet_concurrentDebits_neverOverspend() throws Exception {
+        UUID playerId = createProfile(100);
+        String token = "Bearer " + jwtUtil.generateToken(playerId.toString(), "testUser", List.of(Role.PLAYER));
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        // 16 threads try to spend 1 coin 20 times each, only 100 of the 320 debits can succeed
+        runConcurrently(20, () -> {
+            try {
+                playerProfileService.updateWallet(token, new WalletDTO(0, -1));
+                succeeded.incrementAndGet();
+            } catch (InsufficientFundsException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(100, succeeded.get());
+        assertEquals(THREADS * 20 - 100, rejected.get());
+        assertEquals(0, playerProfileRepository.findById(playerId).orElseThrow().getWallet());
+    }
+
+    // Helper methods
+    private void runConcurrently(int iterations, Runnable operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < iterations; j++) {
+                        operation.run();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private UUID createProfile(int wallet) {
+        return TestProfiles.create(playerProfileRepository, profile -> profile.setWallet(wallet));
+    }
+
+}
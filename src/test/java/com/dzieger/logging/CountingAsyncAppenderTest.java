@@ -0,0 +1,129 @@
+package com.dzieger.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountingAsyncAppenderTest {
+
+    private final LoggerContext context = new LoggerContext();
+
+    @BeforeEach
+    void setUp() {
+        context.setMDCAdapter(new LogbackMDCAdapter());
+    }
+
+    @Test
+    void testAppend_WhenQueueIsFull_ShouldDropAndCountWithoutBlocking() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger delivered = new AtomicInteger();
+
+        // a downstream appender that stays blocked until the test releases it
+        AppenderBase<ILoggingEvent> blocked = downstream(delivered, release);
+
+        CountingAsyncAppender appender = appender(blocked, 4, 0);
+
+        long droppedBefore = CountingAsyncAppender.droppedEvents();
+        try {
+            // the worker drains at most one queue of events before blocking, so at most 8 of the 20 fit
+            for (int i = 0; i < 20; i++) {
+                appender.doAppend(event(Level.WARN, i));
+            }
+        } finally {
+            release.countDown();
+            appender.stop();
+        }
+
+        long dropped = CountingAsyncAppender.droppedEvents() - droppedBefore;
+        assertTrue(dropped >= 12, "dropped " + dropped);
+        // every event was either delivered or counted, none twice
+        assertEquals(20, dropped + delivered.get());
+    }
+
+    @Test
+    void testAppend_UnderContention_ShouldCountExactlyTheEventsThatWereNotDelivered() throws Exception {
+        AtomicInteger delivered = new AtomicInteger();
+        CountingAsyncAppender appender = appender(downstream(delivered, new CountDownLatch(0)), 2, 1);
+
+        int threads = 8;
+        int eventsPerThread = 5_000;
+        long droppedBefore = CountingAsyncAppender.droppedEvents();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // INFO is discarded once one event is queued, WARN only when it does not fit at all, a queue this small
+            // has the threads racing for its last slot all the time
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < eventsPerThread; i++) {
+                        appender.doAppend(event(i % 2 == 0 ? Level.INFO : Level.WARN, i));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            appender.stop();
+        }
+
+        long dropped = CountingAsyncAppender.droppedEvents() - droppedBefore;
+        assertTrue(dropped > 0, "nothing was dropped, the test did not contend");
+        assertEquals((long) threads * eventsPerThread, dropped + delivered.get());
+    }
+
+    // Helper methods
+
+    private AppenderBase<ILoggingEvent> downstream(AtomicInteger delivered, CountDownLatch release) {
+        AppenderBase<ILoggingEvent> appender = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                delivered.incrementAndGet();
+            }
+        };
+        appender.setContext(context);
+        appender.start();
+        return appender;
+    }
+
+    private CountingAsyncAppender appender(AppenderBase<ILoggingEvent> downstream, int queueSize, int discardingThreshold) {
+        CountingAsyncAppender appender = new CountingAsyncAppender();
+        appender.setContext(context);
+        appender.setQueueSize(queueSize);
+        appender.setDiscardingThreshold(discardingThreshold);
+        appender.setNeverBlock(true);
+        // stop() waits for the worker to hand over what is still queued
+        appender.setMaxFlushTime(10_000);
+        appender.addAppender(downstream);
+        appender.start();
+        return appender;
+    }
+
+    private LoggingEvent event(Level level, int i) {
+        return new LoggingEvent(getClass().getName(), context.getLogger("test"), level, "event " + i, null, null);
+    }
+
+}
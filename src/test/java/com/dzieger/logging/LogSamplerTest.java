@@ -0,0 +1,36 @@
+package com.dzieger.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogSamplerTest {
+
+    @Test
+    void testTryAcquire_ShouldAllowOnlyPermitsPerWindow() {
+        LogSampler sampler = new LogSampler(3, Duration.ofHours(1));
+
+        assertTrue(sampler.tryAcquire());
+        assertTrue(sampler.tryAcquire());
+        assertTrue(sampler.tryAcquire());
+        assertFalse(sampler.tryAcquire());
+    }
+
+    @Test
+    void testTryAcquire_ShouldAllowAgainInNextWindow() throws InterruptedException {
+        LogSampler sampler = new LogSampler(1, Duration.ofMillis(20));
+
+        assertTrue(sampler.tryAcquire());
+        assertFalse(sampler.tryAcquire());
+        Thread.sleep(40);
+        assertTrue(sampler.tryAcquire());
+    }
+
+    @Test
+    void testConstructor_WithZeroWindow_ShouldThrowError() {
+        assertThrows(IllegalArgumentException.class, () -> new LogSampler(1, Duration.ZERO));
+    }
+
+}
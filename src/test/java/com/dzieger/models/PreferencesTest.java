@@ -0,0 +1,39 @@
+package com.dzieger.models;
+
+import com.dzieger.exceptions.InvalidPreferenceException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreferencesTest {
+
+    @Test
+    void testMerge_ShouldOnlyChangeGivenPreferences() {
+        Preferences merged = Preferences.defaults().merge(Map.of("sounds", false, "num_of_players", 4));
+
+        assertEquals(true, merged.notifications());
+        assertEquals(false, merged.sounds());
+        assertEquals("regular", merged.defaultGame());
+        assertEquals(4, merged.numOfPlayers());
+    }
+
+    @Test
+    void testMerge_WithUnknownPreference_ShouldThrowError() {
+        assertThrows(InvalidPreferenceException.class, () -> Preferences.defaults().merge(Map.of("default", "regular")));
+    }
+
+    @Test
+    void testMerge_WithWrongValueType_ShouldThrowError() {
+        assertThrows(InvalidPreferenceException.class, () -> Preferences.defaults().merge(Map.of("music", "loud")));
+    }
+
+    @Test
+    void testGamePreferences_ShouldOnlyContainGameFields() {
+        Preferences preferences = Preferences.defaults().merge(Map.of("language", "de"));
+
+        assertEquals(Map.of("default_game", "regular", "language", "de"), preferences.gamePreferences().toMap());
+    }
+
+}
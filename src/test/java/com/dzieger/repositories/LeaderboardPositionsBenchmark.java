@@ -0,0 +1,131 @@
+package com.dzieger.repositories;
+
+import com.dzieger.codecs.PreferenceCodec;
+import com.dzieger.models.LeaderboardPosition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies a re-ranking of 100k players. {@code perEvent} does what handleLeaderboardUpdated used to do through JPA for
+ * every event: a select of the row, then a versioned update of all columns in its own transaction. {@code batch} applies all
+ * positions with one applyLeaderboardPositions call, {@code batchUnchanged} sends the positions the rows already have.
+ * Runs against in-memory H2 by default, pass -Dbenchmark.jdbc.url (and .user, .password) to run it against Postgres.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LeaderboardPositionsBenchmark {
+
+    private static final int PLAYERS = 100_000;
+    private static final String SCHEMA = "leaderboard_benchmark";
+    private static final String TABLE = SCHEMA + ".player_profiles";
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private PlayerProfileRepositoryCustomImpl repository;
+    private List<UUID> players;
+    private List<LeaderboardPosition> initialPositions;
+    private long round;
+
+    @Setup
+    public void setup() {
+        dataSource = new SingleConnectionDataSource(
+                System.getProperty("benchmark.jdbc.url", "jdbc:h2:mem:leaderboard;DB_CLOSE_DELAY=-1"),
+                System.getProperty("benchmark.jdbc.user", "sa"),
+                System.getProperty("benchmark.jdbc.password", ""),
+                true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new PlayerProfileRepositoryCustomImpl(jdbcTemplate, new PreferenceCodec(), SCHEMA);
+
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + SCHEMA);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLE);
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (player_id uuid PRIMARY KEY, preferences varchar(2048), " +
+                "games_played int NOT NULL, games_won int NOT NULL, leaderboard_position int, " +
+                "leaderboard_sequence bigint DEFAULT 0 NOT NULL, time_played bigint NOT NULL, wallet int NOT NULL, " +
+                "created_at timestamp NOT NULL, updated_at timestamp NOT NULL, version bigint DEFAULT 0 NOT NULL)");
+
+        players = new ArrayList<>(PLAYERS);
+        initialPositions = new ArrayList<>(PLAYERS);
+        List<Object[]> rows = new ArrayList<>(PLAYERS);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < PLAYERS; i++) {
+            UUID playerId = UUID.randomUUID();
+            players.add(playerId);
+            initialPositions.add(new LeaderboardPosition(playerId, i + 1, 0));
+            rows.add(new Object[]{playerId, "{\"notifications\": true}", 10, 5, i + 1, 0L, 3600L, 150, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO " + TABLE + " (player_id, preferences, games_played, games_won, " +
+                "leaderboard_position, leaderboard_sequence, time_played, wallet, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        round = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("DROP TABLE " + TABLE);
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public int perEvent() {
+        int updated = 0;
+        for (LeaderboardPosition position : nextRanking()) {
+            Map<String, Object> row = jdbcTemplate.queryForMap("SELECT * FROM " + TABLE + " WHERE player_id = ?",
+                    position.playerId());
+            long version = ((Number) row.get("version")).longValue();
+            updated += jdbcTemplate.update("UPDATE " + TABLE + " SET preferences = ?, games_played = ?, games_won = ?, " +
+                            "leaderboard_position = ?, leaderboard_sequence = ?, time_played = ?, wallet = ?, " +
+                            "created_at = ?, updated_at = ?, version = ? WHERE player_id = ? AND version = ?",
+                    row.get("preferences"), row.get("games_played"), row.get("games_won"),
+                    position.position(), position.sequence(), row.get("time_played"), row.get("wallet"),
+                    row.get("created_at"), Timestamp.valueOf(LocalDateTime.now()), version + 1,
+                    position.playerId(), version);
+        }
+        return updated;
+    }
+
+    @Benchmark
+    public int batch() {
+        return repository.applyLeaderboardPositions(nextRanking()).size();
+    }
+
+    @Benchmark
+    public int batchUnchanged() {
+        // every row still has its initial position, nothing is written
+        return repository.applyLeaderboardPositions(initialPositions).size();
+    }
+
+    // Helper methods
+
+    // Every call moves every player, so no position is left unchanged
+    private List<LeaderboardPosition> nextRanking() {
+        round++;
+        List<LeaderboardPosition> positions = new ArrayList<>(PLAYERS);
+        for (int i = 0; i < PLAYERS; i++) {
+            positions.add(new LeaderboardPosition(players.get(i), (int) ((i + round) % PLAYERS) + 1, round));
+        }
+        return positions;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LeaderboardPositionsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.dzieger.repositories;
+
+import com.dzieger.codecs.PreferenceCodec;
+import com.dzieger.models.Preferences;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Toggles sounds or music for one player per operation, the high-frequency preference PATCH. {@code loadMergeSave}
+ * does what updateProfilePreferences did through JPA: a select of the row, a merge of the parsed preferences in Java
+ * and a versioned update of all columns. {@code databaseMerge} sends only the patch with one mergePreferences call.
+ * Runs against in-memory H2 by default, pass -Dbenchmark.jdbc.url (and .user, .password) to run it against Postgres,
+ * where the merge is a single jsonb || update instead of H2's read-merge-write fallback.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreferencesMergeBenchmark {
+
+    private static final int PLAYERS = 10_000;
+    private static final String SCHEMA = "preferences_benchmark";
+    private static final String TABLE = SCHEMA + ".player_profiles";
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private PreferenceCodec preferenceCodec;
+    private PlayerProfileRepositoryCustomImpl repository;
+    private String preferencesType;
+    private List<UUID> players;
+    private long operation;
+
+    @Setup
+    public void setup() {
+        dataSource = new SingleConnectionDataSource(
+                System.getProperty("benchmark.jdbc.url", "jdbc:h2:mem:preferences;DB_CLOSE_DELAY=-1"),
+                System.getProperty("benchmark.jdbc.user", "sa"),
+                System.getProperty("benchmark.jdbc.password", ""),
+                true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        preferenceCodec = new PreferenceCodec();
+        repository = new PlayerProfileRepositoryCustomImpl(jdbcTemplate, preferenceCodec, SCHEMA);
+        boolean postgres = System.getProperty("benchmark.jdbc.url", "").startsWith("jdbc:postgresql");
+        preferencesType = postgres ? "jsonb" : "json";
+
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + SCHEMA);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLE);
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (player_id uuid PRIMARY KEY, preferences " + preferencesType +
+                ", games_played int NOT NULL, games_won int NOT NULL, leaderboard_position int, " +
+                "leaderboard_sequence bigint DEFAULT 0 NOT NULL, time_played bigint NOT NULL, wallet int NOT NULL, " +
+                "created_at timestamp NOT NULL, updated_at timestamp NOT NULL, version bigint DEFAULT 0 NOT NULL)");
+
+        players = new ArrayList<>(PLAYERS);
+        List<Object[]> rows = new ArrayList<>(PLAYERS);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String defaults = preferenceCodec.writePreferences(Preferences.defaults());
+        for (int i = 0; i < PLAYERS; i++) {
+            UUID playerId = UUID.randomUUID();
+            players.add(playerId);
+            rows.add(new Object[]{playerId, defaults, 10, 5, i + 1, 0L, 3600L, 150, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO " + TABLE + " (player_id, preferences, games_played, games_won, " +
+                "leaderboard_position, leaderboard_sequence, time_played, wallet, created_at, updated_at) " +
+                "VALUES (?, " + jsonParameter() + ", ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        operation = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("DROP TABLE " + TABLE);
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public int loadMergeSave() {
+        UUID playerId = nextPlayer();
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT player_id, CAST(preferences AS varchar) AS preferences, " +
+                "games_played, games_won, leaderboard_position, leaderboard_sequence, time_played, wallet, created_at, " +
+                "version FROM " + TABLE + " WHERE player_id = ?", playerId);
+        Preferences merged = preferenceCodec.readPreferences((String) row.get("preferences")).merge(nextToggle());
+        long version = ((Number) row.get("version")).longValue();
+        return jdbcTemplate.update("UPDATE " + TABLE + " SET preferences = " + jsonParameter() + ", games_played = ?, " +
+                        "games_won = ?, leaderboard_position = ?, leaderboard_sequence = ?, time_played = ?, wallet = ?, " +
+                        "created_at = ?, updated_at = ?, version = ? WHERE player_id = ? AND version = ?",
+                preferenceCodec.writePreferences(merged), row.get("games_played"), row.get("games_won"),
+                row.get("leaderboard_position"), row.get("leaderboard_sequence"), row.get("time_played"),
+                row.get("wallet"), row.get("created_at"), Timestamp.valueOf(LocalDateTime.now()), version + 1,
+                playerId, version);
+    }
+
+    @Benchmark
+    public long databaseMerge() {
+        return repository.mergePreferences(nextPlayer(), Preferences.empty().merge(nextToggle()))
+                .orElseThrow().version();
+    }
+
+    // Helper methods
+
+    private UUID nextPlayer() {
+        return players.get((int) (operation % PLAYERS));
+    }
+
+    // Alternates sounds and music and flips them every pass over the players
+    private Map<String, Object> nextToggle() {
+        long pass = operation / PLAYERS;
+        String key = operation++ % 2 == 0 ? Preferences.SOUNDS : Preferences.MUSIC;
+        return Map.of(key, pass % 2 == 0);
+    }
+
+    private String jsonParameter() {
+        return preferencesType.equals("jsonb") ? "?::jsonb" : "? FORMAT JSON";
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PreferencesMergeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.dzieger.services;
+
+import com.dzieger.codecs.PlayerEventCodec;
+import com.dzieger.codecs.PreferenceCodec;
+import com.dzieger.eventPayloadDtos.LeaderboardStatsEvent;
+import com.dzieger.models.OutboxEvent;
+import com.dzieger.repositories.OutboxEventRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LeaderboardStatsEmitterTest {
+
+    private final OutboxEventRepository outboxEventRepository = mock(OutboxEventRepository.class);
+    private final PlayerEventCodec playerEventCodec = new PlayerEventCodec(new PreferenceCodec(), "binary");
+    private final LeaderboardStatsEmitter emitter =
+            new LeaderboardStatsEmitter(outboxEventRepository, playerEventCodec, "leaderboard-stats");
+
+    @Test
+    void testEmit_ShouldWriteEveryRatioToTheOutboxKeyedByPlayer() {
+        UUID playerId = UUID.randomUUID();
+
+        emitter.emit(playerId, 0.25);
+        emitter.emit(playerId, 0.5);
+
+        ArgumentCaptor<OutboxEvent> captor = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository, times(2)).save(captor.capture());
+        List<OutboxEvent> written = captor.getAllValues();
+        written.forEach(event -> {
+            assertEquals("leaderboard-stats", event.getTopic());
+            assertEquals(playerId.toString(), event.getMessageKey());
+        });
+        LeaderboardStatsEvent latest = playerEventCodec.decode(written.get(1).getPayload(), LeaderboardStatsEvent.class);
+        assertEquals(playerId, latest.getPlayerId());
+        assertEquals(0.5, latest.getStats());
+    }
+
+}
@@ -1,7 +1,13 @@
 package com.dzieger.services;
 
+import com.dzieger.SecurityConfig.CustomAuthenticationToken;
 import com.dzieger.SecurityConfig.JwtUtil;
+import com.dzieger.cache.ProfileCache;
+import com.dzieger.cache.ProfileInvalidationPublisher;
+import com.dzieger.cache.ProfileResponseCache;
+import com.dzieger.cache.ProfileSnapshot;
 import com.dzieger.config.Parameters;
+import com.dzieger.dedup.ProcessedEventIndex;
 import com.dzieger.dtos.PreferencesDTO;
 import com.dzieger.dtos.ProfileDTO;
 import com.dzieger.dtos.WalletDTO;
@@ -9,23 +15,36 @@ import com.dzieger.eventPayloadDtos.GameCompletedEvent;
 import com.dzieger.eventPayloadDtos.LeaderboardUpdatedEvent;
 import com.dzieger.exceptions.InvalidPreferenceException;
 import com.dzieger.exceptions.InsufficientFundsException;
+import com.dzieger.exceptions.PreconditionFailedException;
 import com.dzieger.exceptions.ProfileAlreadyExistsException;
 import com.dzieger.exceptions.ProfileNotFoundException;
+import com.dzieger.metrics.PlayerMetrics;
+import com.dzieger.models.GameStats;
+import com.dzieger.models.GameStatsDelta;
+import com.dzieger.models.LeaderboardPosition;
+import com.dzieger.models.MergedPreferences;
 import com.dzieger.models.PlayerProfile;
+import com.dzieger.models.Preferences;
+import com.dzieger.models.WalletBalance;
 import com.dzieger.models.enums.Role;
 import com.dzieger.repositories.PlayerProfileRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.security.Key;
+import java.time.Duration;
 import java.util.*;
 import java.util.List;
 
@@ -41,7 +60,7 @@ class PlayerProfileServiceTest {
     private PlayerProfileRepository playerProfileRepository;
 
     @Mock
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private LeaderboardStatsEmitter leaderboardStatsEmitter;
 
     @Mock
     private Parameters params;
@@ -49,6 +68,24 @@ class PlayerProfileServiceTest {
     @Mock
     private JwtUtil jwtUtil;
 
+    @Mock
+    private ProfileInvalidationPublisher profileInvalidationPublisher;
+
+    @Mock
+    private ProcessedEventIndex processedEventIndex;
+
+    @Spy
+    private ProfileCache profileCache = new ProfileCache(true, 100, Duration.ofMinutes(1));
+
+    @Spy
+    private ProfileResponseCache profileResponseCache =
+            new ProfileResponseCache(true, 1 << 20, Duration.ofMinutes(1), true, new ObjectMapper());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private PlayerMetrics playerMetrics = new PlayerMetrics(meterRegistry);
+
     @InjectMocks
     private PlayerProfileService playerProfileService;
 
@@ -72,6 +109,11 @@ class PlayerProfileServiceTest {
         token = jwtToken.substring(7);
     }
 
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
     // Helper method to generate a token
     private String generateToken() {
         return Jwts.builder()
@@ -95,24 +137,18 @@ class PlayerProfileServiceTest {
         lenient().when(jwtUtil.extractUserId(token.substring(7))).thenReturn(playerId.toString());
 
         // Mock repository to simulate that the profile does not exist
-        when(playerProfileRepository.findById(playerId)).thenReturn(Optional.empty());
+        PlayerProfile inserted = new PlayerProfile();
+        inserted.setPlayerId(playerId);
+        when(playerProfileRepository.insertProfile(playerId, Preferences.defaults(), 150)).thenReturn(Optional.of(inserted));
 
         // Act
         String result = playerProfileService.createProfile(token);
 
         // Assert
-        // Verify the profile was saved with the expected values
-        verify(playerProfileRepository, times(1)).save(argThat(profile -> {
-            assertNotNull(profile);
-            assertEquals(playerId, profile.getPlayerId());
-            assertNotNull(profile.getPreferences());
-            assertEquals(0, profile.getGamesPlayed());
-            assertEquals(0, profile.getGamesWon());
-            assertEquals(0, profile.getLeaderboardPosition());
-            assertEquals(0, profile.getTimePlayed());
-            assertEquals(150, profile.getWallet());
-            return true;
-        }));
+        // Verify the profile was inserted with one statement, without a lookup first
+        verify(playerProfileRepository, times(1)).insertProfile(playerId, Preferences.defaults(), 150);
+        verify(playerProfileRepository, never()).findById(any());
+        verify(playerProfileRepository, never()).save(any(PlayerProfile.class));
 
         // Verify the correct result message
         assertNotNull(result);
@@ -130,7 +166,7 @@ class PlayerProfileServiceTest {
         lenient().when(jwtUtil.extractUserId(token.substring(7))).thenReturn(playerId.toString());
 
         // Mock repository to simulate that the profile exists
-        when(playerProfileRepository.findById(playerId)).thenReturn(Optional.of(new PlayerProfile()));
+        when(playerProfileRepository.insertProfile(playerId, Preferences.defaults(), 150)).thenReturn(Optional.empty());
 
         // Act & Assert
         ProfileAlreadyExistsException exception = assertThrows(
@@ -152,7 +188,7 @@ class PlayerProfileServiceTest {
         UUID existingPlayerId = UUID.fromString(jwtUtil.extractUserId(token.substring(7)));
         PlayerProfile playerProfile = new PlayerProfile();
         playerProfile.setPlayerId(playerId);
-        playerProfile.setPreferences("{\"notifications\": true}");
+        playerProfile.setPreferences(Preferences.empty().merge(Map.of("notifications", true)));
 
         when(playerProfileRepository.findById(existingPlayerId)).thenReturn(Optional.of(playerProfile));
 
@@ -162,6 +198,98 @@ class PlayerProfileServiceTest {
     }
 
 
+    @Test
+    void testGetProfile_ShouldUseAuthenticatedPrincipal_WithoutParsingToken() {
+        SecurityContextHolder.getContext().setAuthentication(new CustomAuthenticationToken(playerId.toString(), role));
+        PlayerProfile playerProfile = new PlayerProfile();
+        playerProfile.setPlayerId(playerId);
+        playerProfile.setPreferences(Preferences.empty().merge(Map.of("notifications", true)));
+
+        when(playerProfileRepository.findById(playerId)).thenReturn(Optional.of(playerProfile));
+
+        ProfileDTO result = playerProfileService.getProfile("Bearer " + token);
+
+        assertNotNull(result);
+        verify(jwtUtil, never()).extractUserId(anyString());
+    }
+
+
+    @Test
+    void testGetProfile_createIfMissing_ShouldInsertOrReadWithOneStatement_AndCacheTheResult() {
+        SecurityContextHolder.getContext().setAuthentication(new CustomAuthenticationToken(playerId.toString(), role));
+        PlayerProfile created = new PlayerProfile();
+        created.setPlayerId(playerId);
+        created.setPreferences(Preferences.defaults());
+        created.setWallet(150);
+        when(playerProfileRepository.findOrInsertProfile(playerId, Preferences.defaults(), 150))
+                .thenReturn(Optional.of(created));
+
+        assertEquals(0L, playerProfileService.getProfileVersion(token, true));
+        ProfileDTO result = playerProfileService.getProfile(token, true);
+
+        assertEquals(150, result.getWallet());
+        assertEquals("regular", result.getPreferences().get("default_game"));
+        verify(playerProfileRepository, times(1)).findOrInsertProfile(any(), any(), anyInt());
+        verify(playerProfileRepository, never()).findVersionByPlayerId(any());
+        verify(playerProfileRepository, never()).findById(any());
+    }
+
+
+    @Test
+    void testLookupProfiles_loadsCacheMissesWithOneQuery_andReportsMissingIds() {
+        UUID cachedId = UUID.randomUUID();
+        UUID storedId = UUID.randomUUID();
+        UUID unknownId = UUID.randomUUID();
+        PlayerProfile cached = new PlayerProfile();
+        cached.setPlayerId(cachedId);
+        cached.setGamesPlayed(3);
+        PlayerProfile stored = new PlayerProfile();
+        stored.setPlayerId(storedId);
+        stored.setGamesPlayed(7);
+        profileCache.get(cachedId, id -> ProfileSnapshot.of(cached));
+
+        when(playerProfileRepository.findAllById(Set.of(storedId, unknownId))).thenReturn(List.of(stored));
+
+        ProfileLookup result = playerProfileService.lookupProfiles(List.of(unknownId, storedId, cachedId, storedId));
+
+        assertEquals(List.of(storedId, cachedId), new ArrayList<>(result.found().keySet()));
+        assertEquals(7, result.found().get(storedId).toProfileDTO().getGamesPlayed());
+        assertEquals(3, result.found().get(cachedId).toProfileDTO().getGamesPlayed());
+        assertEquals(List.of(unknownId), result.missing());
+        verify(playerProfileRepository, times(1)).findAllById(any());
+        verify(playerProfileRepository, never()).findById(any());
+    }
+
+
+    @Test
+    void testGetProfileVersion_ShouldUseCachedSnapshot_OrAVersionOnlyQuery() {
+        SecurityContextHolder.getContext().setAuthentication(new CustomAuthenticationToken(playerId.toString(), role));
+        when(playerProfileRepository.findVersionByPlayerId(playerId)).thenReturn(Optional.of(4L));
+
+        assertEquals(4L, playerProfileService.getProfileVersion(token));
+
+        PlayerProfile cached = new PlayerProfile();
+        cached.setPlayerId(playerId);
+        cached.setVersion(6);
+        profileCache.get(playerId, id -> ProfileSnapshot.of(cached));
+
+        assertEquals(6L, playerProfileService.getProfileVersion(token));
+        verify(playerProfileRepository, times(1)).findVersionByPlayerId(playerId);
+        verify(playerProfileRepository, never()).findById(any());
+    }
+
+    @Test
+    void testUpdateWallet_ShouldThrowPreconditionFailed_WhenVersionMoved() {
+        SecurityContextHolder.getContext().setAuthentication(new CustomAuthenticationToken(playerId.toString(), role));
+        when(playerProfileRepository.applyWalletChange(playerId, -10, 2L)).thenReturn(Optional.empty());
+        when(playerProfileRepository.findVersionByPlayerId(playerId)).thenReturn(Optional.of(3L));
+
+        assertThrows(PreconditionFailedException.class,
+                () -> playerProfileService.updateWallet(token, new WalletDTO(150, -10), 2L));
+        verify(profileInvalidationPublisher, never()).publish(any(), anyLong());
+    }
+
+
     @Test
     void testUpdateProfilePreferences_shouldUpdatePreferences() {
         when(jwtUtil.extractUserId(anyString())).thenReturn(playerId.toString());
@@ -171,13 +299,16 @@ class PlayerProfileServiceTest {
         PreferencesDTO updatedPreferences = new PreferencesDTO();
         updatedPreferences.setPreferences(newPreferences);
 
-        when(playerProfileRepository.findById(existingPlayerId)).thenReturn(Optional.of(new PlayerProfile()));
-        when(playerProfileRepository.save(any(PlayerProfile.class))).thenReturn(new PlayerProfile());
+        when(playerProfileRepository.mergePreferences(existingPlayerId, Preferences.empty().merge(newPreferences)))
+                .thenReturn(Optional.of(new MergedPreferences(Preferences.defaults(), 1)));
 
         PreferencesDTO result = playerProfileService.updateProfilePreferences(token, updatedPreferences.getPreferences());
 
         assertNotNull(result);
         assertThat(result.getPreferences()).containsEntry("notifications", true);
+        assertThat(result.getPreferences()).containsEntry("default_game", "regular");
+        verify(playerProfileRepository, never()).findById(any());
+        verify(playerProfileRepository, never()).save(any(PlayerProfile.class));
     }
 
     @Test
@@ -188,7 +319,8 @@ class PlayerProfileServiceTest {
 
         Map<String, Object> preferences = Map.of("notifications", true);
 
-        when(playerProfileRepository.findById(existingPlayerId)).thenReturn(Optional.empty());
+        when(playerProfileRepository.mergePreferences(eq(existingPlayerId), any(Preferences.class)))
+                .thenReturn(Optional.empty());
 
         assertThrows(ProfileNotFoundException.class, () -> {
             playerProfileService.updateProfilePreferences(token, preferences);
@@ -233,33 +365,126 @@ class PlayerProfileServiceTest {
     @Test
     void testHandleGameCompleted_ShouldUpdateGamesPlayedAndSendStats() {
         GameCompletedEvent event = new GameCompletedEvent(playerId, true);
-        PlayerProfile profile = new PlayerProfile();
-        profile.setPlayerId(playerId);
-        profile.setPreferences("{\"notifications\": true}");
-        profile.setGamesPlayed(5);
-        profile.setGamesWon(2);
 
-        when(playerProfileRepository.findById(any(UUID.class))).thenReturn(Optional.of(profile));
+        when(playerProfileRepository.incrementGameStats(playerId, 1, 1)).thenReturn(Optional.of(new GameStats(playerId, 6, 3, 6)));
 
         playerProfileService.handleGameCompleted(event);
 
-        verify(playerProfileRepository, times(1)).save(any(PlayerProfile.class));
-        assertEquals(6, profile.getGamesPlayed());
-        assertEquals(3, profile.getGamesWon());
+        verify(playerProfileRepository, never()).findById(any(UUID.class));
+        verify(playerProfileRepository, never()).save(any(PlayerProfile.class));
+        verify(leaderboardStatsEmitter).emit(playerId, 0.5);
+    }
+
+    @Test
+    void testHandleGameCompleted_WhenProfileDoesNotExist_ShouldThrowError() {
+        GameCompletedEvent event = new GameCompletedEvent(playerId, false);
+
+        when(playerProfileRepository.incrementGameStats(playerId, 1, 0)).thenReturn(Optional.empty());
+
+        assertThrows(ProfileNotFoundException.class, () -> playerProfileService.handleGameCompleted(event));
+        verify(leaderboardStatsEmitter, never()).emit(any(UUID.class), anyDouble());
+    }
+
+    @Test
+    void testHandleGameCompletedBatch_ShouldFoldEventsPerPlayerIntoOneDelta() {
+        UUID otherPlayerId = UUID.randomUUID();
+        List<GameCompletedEvent> events = List.of(
+                new GameCompletedEvent(playerId, true),
+                new GameCompletedEvent(otherPlayerId, false),
+                new GameCompletedEvent(playerId, false),
+                new GameCompletedEvent(playerId, true));
+
+        when(playerProfileRepository.applyGameStatsDeltas(anyCollection())).thenReturn(new int[]{1, 1});
+        when(playerProfileRepository.findGameStatsByPlayerIdIn(anyCollection())).thenReturn(List.of(
+                new GameStats(playerId, 3, 2, 3),
+                new GameStats(otherPlayerId, 1, 0, 1)));
+
+        playerProfileService.handleGameCompletedBatch(events);
+
+        verify(playerProfileRepository).applyGameStatsDeltas(argThat(deltas -> {
+            assertEquals(List.of(
+                    new GameStatsDelta(playerId, 3, 2),
+                    new GameStatsDelta(otherPlayerId, 1, 0)), new ArrayList<>(deltas));
+            return true;
+        }));
+        verify(leaderboardStatsEmitter).emit(playerId, 2.0 / 3);
+        verify(leaderboardStatsEmitter).emit(otherPlayerId, 0.0);
+        verify(playerProfileRepository, never()).save(any(PlayerProfile.class));
+    }
+
+    @Test
+    void testHandleGameCompletedBatch_ShouldDropEventsAlreadyProcessed() {
+        UUID processedId = UUID.randomUUID();
+        UUID newId = UUID.randomUUID();
+        List<GameCompletedEvent> events = List.of(
+                new GameCompletedEvent(playerId, true, processedId),
+                new GameCompletedEvent(playerId, false, newId),
+                new GameCompletedEvent(playerId, true, newId),
+                new GameCompletedEvent(playerId, true));
+
+        when(processedEventIndex.claim(List.of(processedId, newId, newId))).thenReturn(Set.of(newId));
+        when(playerProfileRepository.applyGameStatsDeltas(anyCollection())).thenReturn(new int[]{1});
+        when(playerProfileRepository.findGameStatsByPlayerIdIn(anyCollection())).thenReturn(List.of(
+                new GameStats(playerId, 2, 1, 1)));
+
+        playerProfileService.handleGameCompletedBatch(events);
+
+        // the claimed event once, and the event without an id
+        verify(playerProfileRepository).applyGameStatsDeltas(argThat(deltas -> {
+            assertEquals(List.of(new GameStatsDelta(playerId, 2, 1)), new ArrayList<>(deltas));
+            return true;
+        }));
+    }
+
+    @Test
+    void testHandleGameCompleted_WhenEventWasProcessed_ShouldDoNothing() {
+        UUID eventId = UUID.randomUUID();
+
+        when(processedEventIndex.claim(List.of(eventId))).thenReturn(Set.of());
+
+        playerProfileService.handleGameCompleted(new GameCompletedEvent(playerId, true, eventId));
+
+        verify(playerProfileRepository, never()).incrementGameStats(any(UUID.class), anyInt(), anyInt());
+        verify(leaderboardStatsEmitter, never()).emit(any(UUID.class), anyDouble());
     }
 
     @Test
     void testHandleLeaderboardUpdated_ShouldUpdateLeaderboardPosition() {
-        LeaderboardUpdatedEvent event = new LeaderboardUpdatedEvent(playerId, 10);
-        PlayerProfile profile = new PlayerProfile();
-        profile.setPlayerId(playerId);
+        LeaderboardUpdatedEvent event = new LeaderboardUpdatedEvent(playerId, 10, 3);
 
-        when(playerProfileRepository.findById(playerId)).thenReturn(Optional.of(profile));
+        when(playerProfileRepository.applyLeaderboardPositions(List.of(new LeaderboardPosition(playerId, 10, 3))))
+                .thenReturn(Map.of(playerId, 2L));
 
         playerProfileService.handleLeaderboardUpdated(event);
 
-        assertEquals(10, profile.getLeaderboardPosition());
-        verify(playerProfileRepository, times(1)).save(profile);
+        verify(profileInvalidationPublisher).publish(playerId, 2L);
+        verify(playerProfileRepository, never()).findById(any());
+        verify(playerProfileRepository, never()).save(any(PlayerProfile.class));
+    }
+
+    @Test
+    void testHandleLeaderboardUpdatedBatch_ShouldApplyNewestPositionPerPlayerAndInvalidateUpdatedRows() {
+        UUID otherPlayerId = UUID.randomUUID();
+        List<LeaderboardUpdatedEvent> events = List.of(
+                new LeaderboardUpdatedEvent(playerId, 4, 7),
+                new LeaderboardUpdatedEvent(otherPlayerId, 2, 7),
+                new LeaderboardUpdatedEvent(playerId, 9, 6),
+                new LeaderboardUpdatedEvent(playerId, 3, 8));
+
+        when(playerProfileRepository.applyLeaderboardPositions(anyCollection())).thenReturn(Map.of(playerId, 5L));
+
+        playerProfileService.handleLeaderboardUpdatedBatch(events);
+
+        verify(playerProfileRepository).applyLeaderboardPositions(argThat(positions -> {
+            assertEquals(List.of(
+                    new LeaderboardPosition(playerId, 3, 8),
+                    new LeaderboardPosition(otherPlayerId, 2, 7)), new ArrayList<>(positions));
+            return true;
+        }));
+        // the other player's position was unchanged, so only the updated row is invalidated
+        verify(profileInvalidationPublisher).publish(playerId, 5L);
+        verify(profileInvalidationPublisher, never()).publish(eq(otherPlayerId), anyLong());
+        verify(playerProfileRepository, never()).save(any(PlayerProfile.class));
     }
 
     @Test
@@ -268,16 +493,14 @@ class PlayerProfileServiceTest {
         UUID existingPlayer = UUID.fromString(jwtUtil.extractUserId(token.substring(7)));
 
         WalletDTO walletDTO = new WalletDTO(100, 5);
-        PlayerProfile profile = new PlayerProfile();
-        profile.setWallet(50);
 
-        when(playerProfileRepository.findById(existingPlayer)).thenReturn(Optional.of(profile));
+        when(playerProfileRepository.applyWalletChange(existingPlayer, 5)).thenReturn(Optional.of(new WalletBalance(55, 1)));
 
         WalletDTO result = playerProfileService.updateWallet(token, walletDTO);
 
         assertEquals(55, result.getBalance());
         assertEquals(5, result.getChangeAmount());
-        verify(playerProfileRepository, times(1)).save(profile);
+        verify(playerProfileRepository, never()).save(any(PlayerProfile.class));
     }
 
     @Test
@@ -286,17 +509,14 @@ class PlayerProfileServiceTest {
         UUID existingPlayer = UUID.fromString(jwtUtil.extractUserId(token.substring(7)));
 
         WalletDTO walletDTO = new WalletDTO(100, -10);
-        PlayerProfile profile = new PlayerProfile();
-        profile.setPreferences("{\"notifications\": true}");
-        profile.setWallet(100);
 
-        when(playerProfileRepository.findById(existingPlayer)).thenReturn(Optional.of(profile));
+        when(playerProfileRepository.applyWalletChange(existingPlayer, -10)).thenReturn(Optional.of(new WalletBalance(90, 1)));
 
         WalletDTO result = playerProfileService.updateWallet(token, walletDTO);
 
         assertEquals(90, result.getBalance());
         assertEquals(-10, result.getChangeAmount());
-        verify(playerProfileRepository, times(1)).save(profile);
+        verify(playerProfileRepository, never()).save(any(PlayerProfile.class));
     }
 
     @Test
@@ -304,17 +524,29 @@ class PlayerProfileServiceTest {
         when(jwtUtil.extractUserId(anyString())).thenReturn(playerId.toString());
         UUID existingPlayer = UUID.fromString(jwtUtil.extractUserId(token.substring(7)));
         WalletDTO walletDTO = new WalletDTO(100, -150);
-        PlayerProfile profile = new PlayerProfile();
-        profile.setPreferences("{\"notifications\": true}");
-        profile.setWallet(50);
 
-        when(playerProfileRepository.findById(existingPlayer)).thenReturn(Optional.of(profile));
+        when(playerProfileRepository.applyWalletChange(existingPlayer, -150)).thenReturn(Optional.empty());
+        when(playerProfileRepository.existsById(existingPlayer)).thenReturn(true);
 
         assertThrows(InsufficientFundsException.class, () -> {
             playerProfileService.updateWallet(token, walletDTO);
         });
     }
 
+    @Test
+    void testUpdateWallet_WhenProfileDoesNotExist_ShouldThrowError() {
+        when(jwtUtil.extractUserId(anyString())).thenReturn(playerId.toString());
+        UUID missingPlayer = UUID.fromString(jwtUtil.extractUserId(token.substring(7)));
+        WalletDTO walletDTO = new WalletDTO(0, 10);
+
+        when(playerProfileRepository.applyWalletChange(missingPlayer, 10)).thenReturn(Optional.empty());
+        when(playerProfileRepository.existsById(missingPlayer)).thenReturn(false);
+
+        assertThrows(ProfileNotFoundException.class, () -> {
+            playerProfileService.updateWallet(token, walletDTO);
+        });
+    }
+
 
     @Test
     void testGetWallet_ShouldReturnWalletDetails() {
@@ -322,7 +554,7 @@ class PlayerProfileServiceTest {
         UUID existingPlayer = UUID.fromString(jwtUtil.extractUserId(token.substring(7)));
 
         PlayerProfile profile = new PlayerProfile();
-        profile.setPreferences("{\"notifications\": true}");
+        profile.setPreferences(Preferences.empty().merge(Map.of("notifications", true)));
         profile.setWallet(150);
 
         when(playerProfileRepository.findById(existingPlayer)).thenReturn(Optional.of(profile));
@@ -339,7 +571,7 @@ class PlayerProfileServiceTest {
         UUID existingPlayer = UUID.fromString(jwtUtil.extractUserId(token.substring(7)));
 
         PlayerProfile profile = new PlayerProfile();
-        profile.setPreferences("{\"notifications\": true}");
+        profile.setPreferences(Preferences.empty().merge(Map.of("notifications", true)));
 
         when(playerProfileRepository.findById(existingPlayer)).thenReturn(Optional.of(profile));
 
@@ -349,4 +581,64 @@ class PlayerProfileServiceTest {
         assertThat(result.getPreferences()).containsEntry("notifications", true);
     }
 
-}
\ No newline at end of file
+    @Test
+    void testGetWallet_SecondReadShouldBeServedFromCache() {
+        when(jwtUtil.extractUserId(anyString())).thenReturn(playerId.toString());
+
+        PlayerProfile profile = new PlayerProfile();
+        profile.setWallet(150);
+
+        when(playerProfileRepository.findById(playerId)).thenReturn(Optional.of(profile));
+
+        assertEquals(150, playerProfileService.getWallet(token).getBalance());
+        assertEquals(150, playerProfileService.getWallet(token).getBalance());
+
+        verify(playerProfileRepository, times(1)).findById(playerId);
+    }
+
+    @Test
+    void testUpdateWallet_ShouldEvictCachedProfile() {
+        when(jwtUtil.extractUserId(anyString())).thenReturn(playerId.toString());
+
+        PlayerProfile profile = new PlayerProfile();
+        profile.setWallet(150);
+
+        when(playerProfileRepository.findById(playerId)).thenReturn(Optional.of(profile));
+        when(playerProfileRepository.applyWalletChange(playerId, 5)).thenReturn(Optional.of(new WalletBalance(155, 1)));
+
+        playerProfileService.getWallet(token);
+        playerProfileService.updateWallet(token, new WalletDTO(150, 5));
+        profile.setWallet(155);
+
+        assertEquals(155, playerProfileService.getWallet(token).getBalance());
+        verify(profileCache).evict(playerId);
+        verify(profileInvalidationPublisher).publish(playerId, 1);
+        verify(playerProfileRepository, times(2)).findById(playerId);
+    }
+
+    @Test
+    void testGetProfile_MissingProfileShouldNotBeCached() {
+        when(jwtUtil.extractUserId(anyString())).thenReturn(playerId.toString());
+        when(playerProfileRepository.findById(playerId)).thenReturn(Optional.empty());
+
+        assertThrows(ProfileNotFoundException.class, () -> playerProfileService.getProfile(token));
+        assertThrows(ProfileNotFoundException.class, () -> playerProfileService.getProfile(token));
+
+        verify(playerProfileRepository, times(2)).findById(playerId);
+    }
+
+    @Test
+    void testUpdateWallet_ShouldCountCreditsAndDebits() {
+        when(jwtUtil.extractUserId(anyString())).thenReturn(playerId.toString());
+        when(playerProfileRepository.applyWalletChange(playerId, 5)).thenReturn(Optional.of(new WalletBalance(155, 1)));
+        when(playerProfileRepository.applyWalletChange(playerId, -20)).thenReturn(Optional.of(new WalletBalance(135, 2)));
+
+        playerProfileService.updateWallet(token, new WalletDTO(150, 5));
+        playerProfileService.updateWallet(token, new WalletDTO(155, -20));
+
+        assertEquals(1, meterRegistry.get("player.wallet.changes").tag("type", "credit").counter().count());
+        assertEquals(1, meterRegistry.get("player.wallet.changes").tag("type", "debit").counter().count());
+        assertEquals(20, meterRegistry.get("player.wallet.amount").tag("type", "debit").counter().count());
+    }
+
+}